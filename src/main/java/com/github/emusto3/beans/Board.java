@@ -0,0 +1,221 @@
+package com.github.emusto3.beans;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 9x9 board backed by a flat cell array plus per-row, per-column and per-box
+ * digit bitmasks. Placement, validity checks and completion detection are O(1).
+ * Bit (v - 1) of a mask is set when digit v is already used in that unit.
+ */
+public class Board implements Serializable {
+
+	public static final int SIZE = 9;
+	public static final int CELLS = SIZE * SIZE;
+	public static final int ALL_DIGITS = 0x1FF;
+
+	/** Length of the packed form: two cells per byte. */
+	public static final int PACKED_LENGTH = (CELLS + 1) / 2;
+
+	private static final int[] ROW = new int[CELLS];
+	private static final int[] COL = new int[CELLS];
+	private static final int[] BOX = new int[CELLS];
+
+	static {
+		for (int i = 0; i < CELLS; i++) {
+			ROW[i] = i / SIZE;
+			COL[i] = i % SIZE;
+			BOX[i] = (ROW[i] / 3) * 3 + COL[i] / 3;
+		}
+	}
+
+	private transient byte[] cells = new byte[CELLS];
+	private transient short[] rows = new short[SIZE];
+	private transient short[] cols = new short[SIZE];
+	private transient short[] boxes = new short[SIZE];
+	private transient int empty = CELLS;
+
+	public Board() {
+	}
+
+	public Board(int[][] grid) {
+		for (int r = 0; r < SIZE; r++) {
+			for (int c = 0; c < SIZE; c++) {
+				if (grid[r][c] != 0) set(r * SIZE + c, grid[r][c]);
+			}
+		}
+	}
+
+	public Board(Board other) {
+		this.cells = other.cells.clone();
+		this.rows = other.rows.clone();
+		this.cols = other.cols.clone();
+		this.boxes = other.boxes.clone();
+		this.empty = other.empty;
+	}
+
+	public static int index(int row, int col) {
+		return row * SIZE + col;
+	}
+
+	public int get(int row, int col) {
+		return cells[index(row, col)];
+	}
+
+	public int get(int index) {
+		return cells[index];
+	}
+
+	public boolean isEmpty(int row, int col) {
+		return cells[index(row, col)] == 0;
+	}
+
+	/**
+	 * Digits still allowed in the given cell, as a bitmask (bit v-1 for digit v).
+	 */
+	public int candidates(int index) {
+		if (cells[index] != 0) return 0;
+		return ~(rows[ROW[index]] | cols[COL[index]] | boxes[BOX[index]]) & ALL_DIGITS;
+	}
+
+	public int candidates(int row, int col) {
+		return candidates(index(row, col));
+	}
+
+	/**
+	 * Checks if the value can go in the (empty) cell without breaking row, column or box.
+	 */
+	public boolean canPlace(int row, int col, int value) {
+		return canPlace(index(row, col), value);
+	}
+
+	public boolean canPlace(int index, int value) {
+		return value >= 1 && value <= SIZE && (candidates(index) & bit(value)) != 0;
+	}
+
+	/**
+	 * Places the value if the cell is empty and the move is valid.
+	 * @return true if the value was placed
+	 */
+	public boolean place(int row, int col, int value) {
+		int index = index(row, col);
+		if (!canPlace(index, value)) return false;
+		set(index, value);
+		return true;
+	}
+
+	/**
+	 * Writes a value without validity checks (0 clears the cell).
+	 */
+	public void set(int index, int value) {
+		int old = cells[index];
+		if (old != 0) {
+			int mask = ~bit(old);
+			rows[ROW[index]] &= mask;
+			cols[COL[index]] &= mask;
+			boxes[BOX[index]] &= mask;
+			empty++;
+		}
+		cells[index] = (byte) value;
+		if (value != 0) {
+			int mask = bit(value);
+			rows[ROW[index]] |= mask;
+			cols[COL[index]] |= mask;
+			boxes[BOX[index]] |= mask;
+			empty--;
+		}
+	}
+
+	public void clear(int row, int col) {
+		set(index(row, col), 0);
+	}
+
+	public int getEmptyCount() {
+		return empty;
+	}
+
+	public boolean isComplete() {
+		return empty == 0;
+	}
+
+	public int[][] toMatrix() {
+		int[][] grid = new int[SIZE][SIZE];
+		for (int i = 0; i < CELLS; i++) grid[ROW[i]][COL[i]] = cells[i];
+		return grid;
+	}
+
+	/**
+	 * Compact form: 81 cells packed as 4-bit values, 41 bytes.
+	 */
+	public byte[] toBytes() {
+		byte[] packed = new byte[PACKED_LENGTH];
+		writeTo(packed, 0);
+		return packed;
+	}
+
+	public void writeTo(byte[] dest, int offset) {
+		for (int i = 0; i < CELLS; i += 2) {
+			int low = cells[i];
+			int high = i + 1 < CELLS ? cells[i + 1] : 0;
+			dest[offset + (i >> 1)] = (byte) (low | (high << 4));
+		}
+	}
+
+	public static Board fromBytes(byte[] packed) {
+		return fromBytes(packed, 0);
+	}
+
+	public static Board fromBytes(byte[] packed, int offset) {
+		Board board = new Board();
+		for (int i = 0; i < CELLS; i++) {
+			int value = unpack(packed, offset, i);
+			if (value != 0) board.set(i, value);
+		}
+		return board;
+	}
+
+	/**
+	 * Reads a single cell from the packed form without decoding the whole board.
+	 */
+	public static int unpack(byte[] packed, int offset, int index) {
+		int b = packed[offset + (index >> 1)];
+		return (index & 1) == 0 ? b & 0x0F : (b >> 4) & 0x0F;
+	}
+
+	public static int bit(int value) {
+		return 1 << (value - 1);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.write(toBytes());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		byte[] packed = new byte[PACKED_LENGTH];
+		in.readFully(packed);
+		Board board = fromBytes(packed);
+		this.cells = board.cells;
+		this.rows = board.rows;
+		this.cols = board.cols;
+		this.boxes = board.boxes;
+		this.empty = board.empty;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Board)) return false;
+		return Arrays.equals(cells, ((Board) o).cells);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(cells);
+	}
+
+}
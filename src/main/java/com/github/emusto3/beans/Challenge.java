@@ -4,7 +4,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
+
+import com.github.emusto3.generator.PuzzlePool;
 
 public class Challenge implements Serializable{
 	
@@ -16,6 +17,8 @@ public class Challenge implements Serializable{
 	private boolean isTerminated = false;
 	private boolean isStarted = false;
 	private boolean isFull = false;
+	// Incremented on every change stored in the DHT, moves carry it as their sequence
+	private long version = 0;
 	
 	public boolean isFull() {
 		return isFull;
@@ -64,12 +67,23 @@ public class Challenge implements Serializable{
 
 
 
+	// Empty challenge, filled in by the codec
+	public Challenge() {
+		
+	}
+	
 	public Challenge(String codice_partita, String nickname, int seed) {
 		
+		this(codice_partita, nickname, seed, Difficulty.MEDIUM);
+		
+	}
+	
+	public Challenge(String codice_partita, String nickname, int seed, Difficulty difficulty) {
+		
 		this.codice_partita = codice_partita;
 		this.owner = nickname;
 		this.players_scores.put(nickname, 0);
-		this.sudoku_board = new Sudoku(seed == -1 ? 0 : new Random().nextInt(8));
+		this.sudoku_board = seed == -1 ? new Sudoku(0) : new Sudoku(PuzzlePool.getDefault().take(difficulty));
 		
 	}
 	
@@ -133,6 +147,63 @@ public class Challenge implements Serializable{
 		this.codice_partita = codice_partita;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+	
+	/**
+	 * Applies a move received from another peer. The caller checks the sequence first.
+	 */
+	public void applyMove(MoveApplied move) {
+		if (move.getScoreDelta() > 0) {
+			sudoku_board.placeValue(move.getX(), move.getY(), move.getValue());
+		}
+		players_scores.merge(move.getNickname(), move.getScoreDelta(), Integer::sum);
+		version = move.getSequence();
+	}
+	
+	/**
+	 * Scores a placement by the player and fills the cell if the value is right.
+	 * @return the score change: -1 for a wrong value, 1 for a right value in an empty cell, 0 otherwise
+	 */
+	public int placeNumber(String nickname, int x, int y, int value) {
+		int currentScore = players_scores.get(nickname);
+		int correctValue = sudoku_board.getSoluzione(x, y);
+		int currentCellValue = sudoku_board.getSfida().get(x, y);
+
+		if (correctValue != value) {
+			// Wrong value - lose a point
+			players_scores.put(nickname, currentScore - 1);
+			return -1;
+		} else if (currentCellValue == 0) {
+			// Correct value in empty cell - gain a point
+			players_scores.put(nickname, currentScore + 1);
+			sudoku_board.placeValue(x, y, value);
+			return 1;
+		} else {
+			// Correct value but cell already filled - no points
+			return 0;
+		}
+	}
+	
+	/**
+	 * Marks a completed challenge as terminated and sets the player with the highest score as winner
+	 */
+	public void complete() {
+		isFull = true;
+		
+		Map.Entry<String, Integer> best = players_scores.entrySet()
+				.stream()
+				.max(Map.Entry.comparingByValue())
+				.orElse(null);
+		isTerminated = true;
+		winner = new Pair<>(best.getKey(), best.getValue());
+	}
+
 	public Sudoku getSudoku_board() {
 		return sudoku_board;
 	}
@@ -0,0 +1,50 @@
+package com.github.emusto3.beans;
+
+import java.io.Serializable;
+
+/**
+ * What the lobby shows of a room, kept in the lobby index next to the full room record.
+ */
+public class ChallengeSummary implements Serializable{
+	
+	private final String codice_partita;
+	private final String owner;
+	private final int players;
+	private final boolean isStarted;
+	// Version of the room this summary was taken from
+	private final long version;
+	
+	public ChallengeSummary(String codice_partita, String owner, int players, boolean isStarted, long version) {
+		this.codice_partita = codice_partita;
+		this.owner = owner;
+		this.players = players;
+		this.isStarted = isStarted;
+		this.version = version;
+	}
+	
+	public ChallengeSummary(Challenge challenge) {
+		this(challenge.getCodice_partita(), challenge.getOwner(), challenge.getPlayers_scores().size(),
+				challenge.isStarted(), challenge.getVersion());
+	}
+
+	public String getCodice_partita() {
+		return codice_partita;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public int getPlayers() {
+		return players;
+	}
+
+	public boolean isStarted() {
+		return isStarted;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.github.emusto3.beans;
+
+/**
+ * Difficulty levels for generated puzzles, expressed as a target number of clues.
+ */
+public enum Difficulty {
+	
+	EASY(40),
+	MEDIUM(32),
+	HARD(26);
+	
+	private final int clues;
+	
+	private Difficulty(int clues) {
+		this.clues = clues;
+	}
+	
+	public int getClues() {
+		return clues;
+	}
+	
+	/**
+	 * Classifies a puzzle by its number of clues, from the easiest level down.
+	 */
+	public static Difficulty forClues(int clues) {
+		for (Difficulty difficulty : values()) {
+			if (clues >= difficulty.clues) return difficulty;
+		}
+		return HARD;
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.github.emusto3.beans;
+
+import java.io.Serializable;
+
+/**
+ * One change to the lobby, numbered with the version of the room it is about.
+ */
+public class LobbyEvent implements Serializable{
+	
+	public enum Kind {
+		ADDED,
+		REMOVED,
+		UPDATED
+	}
+	
+	private final Kind kind;
+	private final long version;
+	private final String codice_partita;
+	// Null for REMOVED
+	private final ChallengeSummary summary;
+	
+	public LobbyEvent(Kind kind, long version, String codice_partita, ChallengeSummary summary) {
+		this.kind = kind;
+		this.version = version;
+		this.codice_partita = codice_partita;
+		this.summary = summary;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public String getCodice_partita() {
+		return codice_partita;
+	}
+
+	public ChallengeSummary getSummary() {
+		return summary;
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.github.emusto3.beans;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Envelope for every direct message between peers: a type tag, the sender and the payload.
+ * Relayed broadcasts also carry an id, for duplicate suppression, and the players
+ * the receiver has to pass the message on to.
+ */
+public class Message implements Serializable{
+	
+	private final MessageType type;
+	private final String sender;
+	private final Object payload;
+	// 0 for messages that are not relayed
+	private final long id;
+	private final List<Player> relay;
+	
+	public Message(MessageType type, String sender, Object payload) {
+		this(type, sender, payload, 0, Collections.emptyList());
+	}
+	
+	public Message(MessageType type, String sender, Object payload, long id, List<Player> relay) {
+		this.type = type;
+		this.sender = sender;
+		this.payload = payload;
+		this.id = id;
+		this.relay = relay;
+	}
+
+	public MessageType getType() {
+		return type;
+	}
+
+	public String getSender() {
+		return sender;
+	}
+
+	public Object getPayload() {
+		return payload;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public List<Player> getRelay() {
+		return relay;
+	}
+
+}
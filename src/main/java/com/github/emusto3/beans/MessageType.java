@@ -0,0 +1,21 @@
+package com.github.emusto3.beans;
+
+/**
+ * Kind of a direct message between peers. Constants are only ever appended, the codec sends the ordinal.
+ */
+public enum MessageType {
+
+	// Payload: ArrayList<Challenge>, no longer sent, superseded by LOBBY
+	CHALLENGE_LIST,
+	// Payload: Challenge
+	CHALLENGE,
+	// Payload: MoveApplied
+	MOVE,
+	// Payload: ArrayList<ChallengeSummary>, no longer sent, superseded by LOBBY_EVENT
+	LOBBY,
+	// Payload: LobbyEvent
+	LOBBY_EVENT,
+	// Payload: RoomRequest, sent to the room host, which answers with a MOVE for moves and a CHALLENGE otherwise
+	ROOM_REQUEST
+
+}
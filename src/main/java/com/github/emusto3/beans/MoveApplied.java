@@ -0,0 +1,57 @@
+package com.github.emusto3.beans;
+
+import java.io.Serializable;
+
+/**
+ * Delta sent to the participants after a placement, instead of the whole Challenge.
+ */
+public class MoveApplied implements Serializable{
+	
+	private final String codice_partita;
+	private final int x;
+	private final int y;
+	private final int value;
+	private final String nickname;
+	private final int scoreDelta;
+	// Challenge version produced by this move
+	private final long sequence;
+	
+	public MoveApplied(String codice_partita, int x, int y, int value, String nickname, int scoreDelta, long sequence) {
+		this.codice_partita = codice_partita;
+		this.x = x;
+		this.y = y;
+		this.value = value;
+		this.nickname = nickname;
+		this.scoreDelta = scoreDelta;
+		this.sequence = sequence;
+	}
+
+	public String getCodice_partita() {
+		return codice_partita;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	public String getNickname() {
+		return nickname;
+	}
+
+	public int getScoreDelta() {
+		return scoreDelta;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.github.emusto3.beans;
+
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Immutable puzzle definition: the given cells and the unique solution.
+ * Identified by a hash of its content, so identical boards share the same id.
+ */
+public final class Puzzle implements Serializable {
+	
+	private final String id;
+	private final byte[] givens;
+	private final byte[] solution;
+	private final Difficulty difficulty;
+	
+	public Puzzle(Board givens, Board solution, Difficulty difficulty) {
+		this.givens = givens.toBytes();
+		this.solution = solution.toBytes();
+		this.difficulty = difficulty;
+		this.id = contentHash(this.givens, this.solution);
+	}
+	
+	/**
+	 * Builds a puzzle from the packed 4-bit form of givens and solution.
+	 */
+	public Puzzle(byte[] packedGivens, byte[] packedSolution, Difficulty difficulty) {
+		this.givens = packedGivens.clone();
+		this.solution = packedSolution.clone();
+		this.difficulty = difficulty;
+		this.id = contentHash(this.givens, this.solution);
+	}
+	
+	/**
+	 * Writes the packed givens followed by the packed solution.
+	 */
+	public void writeTo(byte[] dest, int offset) {
+		System.arraycopy(givens, 0, dest, offset, givens.length);
+		System.arraycopy(solution, 0, dest, offset + givens.length, solution.length);
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public int getClues() {
+		return Board.CELLS - getGivens().getEmptyCount();
+	}
+	
+	public Board getGivens() {
+		return Board.fromBytes(givens);
+	}
+	
+	public Board getSolution() {
+		return Board.fromBytes(solution);
+	}
+	
+	public int solutionAt(int row, int col) {
+		return Board.unpack(solution, 0, Board.index(row, col));
+	}
+	
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+	
+	private static String contentHash(byte[] givens, byte[] solution) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(givens);
+			digest.update(solution);
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Puzzle)) return false;
+		return id.equals(((Puzzle) o).id);
+	}
+	
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.github.emusto3.beans;
+
+import java.io.Serializable;
+
+/**
+ * Change asked of the peer hosting a room. Coordinates and value are only set for MOVE.
+ */
+public class RoomRequest implements Serializable{
+	
+	public enum Kind {
+		// Current state of the room, nothing changes
+		SYNC,
+		JOIN,
+		START,
+		QUIT,
+		MOVE
+	}
+	
+	private final Kind kind;
+	private final String codice_partita;
+	private final String nickname;
+	private final int x;
+	private final int y;
+	private final int value;
+	
+	public RoomRequest(Kind kind, String codice_partita, String nickname) {
+		this(kind, codice_partita, nickname, 0, 0, 0);
+	}
+	
+	public RoomRequest(Kind kind, String codice_partita, String nickname, int x, int y, int value) {
+		this.kind = kind;
+		this.codice_partita = codice_partita;
+		this.nickname = nickname;
+		this.x = x;
+		this.y = y;
+		this.value = value;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public String getCodice_partita() {
+		return codice_partita;
+	}
+
+	public String getNickname() {
+		return nickname;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+}
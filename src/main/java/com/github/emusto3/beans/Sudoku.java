@@ -1,152 +1,87 @@
 package com.github.emusto3.beans;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Random;
+
+import com.github.emusto3.generator.PuzzleCatalog;
 
 public class Sudoku implements Serializable{
 	
-	int [][][] sudokuList = {
-			
-			{
-				{8, 4, 3, 5, 7, 1, 6, 9, 2},
-				{9, 1, 7, 8, 6, 2, 5, 4, 3},
-				{6, 5, 2, 9, 4, 3, 1, 8, 7},
-				{4, 3, 6, 1, 2, 5, 8, 7, 9},
-				{2, 8, 5, 7, 3, 9, 4, 1, 6},
-				{7, 9, 1, 4, 8, 6, 3, 2, 5},
-				{5, 7, 9, 3, 1, 8, 2, 6, 4},
-				{1, 6, 4, 2, 5, 7, 9, 3, 8},
-				{3, 2, 8, 6, 9, 4, 7, 5, 1}
-			},
-			{
-				{4, 3, 7, 9, 1, 2, 6, 5, 8},
-				{8, 1, 6, 7, 5, 3, 2, 4, 9},
-				{9, 2, 5, 8, 6, 4, 1, 7, 3},
-				{2, 9, 3, 6, 7, 5, 4, 8, 1},
-				{1, 6, 8, 2, 4, 9, 7, 3, 5},
-				{5, 7, 4, 3, 8, 1, 9, 2, 6},
-				{7, 8, 1, 4, 3, 6, 5, 9, 2},
-				{6, 4, 2, 5, 9, 8, 3, 1, 7},
-				{3, 5, 9, 1, 2, 7, 8, 6, 4}
-			},
-			{
-				{8,6, 2, 7, 9, 4, 5, 3, 1},
-				{5,3, 4, 8, 1, 6, 7, 9, 2},
-				{1,9, 7, 3, 5, 2, 8, 6, 4},
-				{9,8, 1, 2, 7, 3, 4, 5, 6},
-				{4,2, 3, 6, 8, 5, 9, 1, 7},
-				{6,7, 5, 9, 4, 1, 2, 8, 3},
-				{2,4, 9, 1, 3, 8, 6, 7, 5},
-				{3,5, 8, 4, 6, 7, 1, 2, 9},
-				{7,1, 6, 5, 2, 9, 3, 4, 8}
-			},
-			{
-				{5, 7, 2, 6, 1, 8, 3, 9, 4},
-				{1, 9, 4, 5, 2, 3, 7, 8, 6},
-				{8, 3, 6, 7, 9, 4, 1, 5, 2},
-				{2, 8, 1, 3, 4, 5, 6, 7, 9},
-				{9, 6, 7, 2, 8, 1, 4, 3, 5},
-				{4, 5, 3, 9, 6, 7, 8, 2, 1},
-				{6, 1, 9, 8, 7, 2, 5, 4, 3},
-				{7, 4, 5, 1, 3, 9, 2, 6, 8},
-				{3, 2, 8, 4, 5, 6, 9, 1, 7}
-			},
-			{
-				{3, 5, 8, 2, 7, 4, 1, 9, 6},
-				{4, 6, 7, 9, 3, 1, 8, 2, 5},
-				{1, 9, 2, 5, 6, 8, 3, 7, 4},
-				{7, 1, 9, 3, 4, 6, 5, 8, 2},
-				{2, 8, 4, 1, 5, 7, 9, 6, 3},
-				{5, 3, 6, 8, 2, 9, 4, 1, 7},
-				{9, 4, 5, 7, 8, 2, 6, 3, 1},
-				{6, 2, 1, 4, 9, 3, 7, 5, 8},
-				{8, 7, 3, 6, 1, 5, 2, 4, 9}
-			},
-			{
-				{5, 1, 6, 3, 4, 2, 8, 9, 7},
-				{9, 3, 8, 7, 5, 6, 1, 4, 2},
-				{4, 2, 7, 9, 8, 1, 3, 5, 6},
-				{6, 9, 3, 5, 7, 4, 2, 1, 8},
-				{8, 4, 5, 2, 1, 3, 7, 6, 9},
-				{1, 7, 2, 8, 6, 9, 4, 3, 5},
-				{2, 8, 9, 1, 3, 5, 6, 7, 4},
-				{7, 6, 1, 4, 9, 8, 5, 2, 3},
-				{3, 5, 4, 6, 2, 7, 9, 8, 1}
-
-			},
-			{
-				{7, 8, 9, 1, 4, 2, 3, 5, 6},
-				{5, 2, 3, 8, 6, 7, 1, 4, 9},
-				{1, 6, 4, 5, 3, 9, 2, 7, 8},
-				{4, 9, 8, 3, 2, 5, 6, 1, 7},
-				{3, 5, 1, 6, 7, 8, 9, 2, 4},
-				{6, 7, 2, 9, 1, 4, 8, 3, 5},
-				{2, 3, 5, 7, 8, 6, 4, 9, 1},
-				{9, 4, 6, 2, 5, 1, 7, 8, 3},
-				{8, 1, 7, 4, 9, 3, 5, 6, 2}
-			},
-			{
-				{3, 9, 6, 2, 8, 4, 5, 1, 7},
-				{1, 2, 8, 7, 3, 5, 4, 9, 6},
-				{5, 4, 7, 9, 6, 1, 2, 3, 8},
-				{4, 8, 2, 5, 7, 3, 1, 6, 9},
-				{6, 1, 3, 8, 9, 2, 7, 4, 5},
-				{7, 5, 9, 4, 1, 6, 8, 2, 3},
-				{2, 6, 5, 3, 4, 7, 9, 8, 1},
-				{9, 7, 1, 6, 2, 8, 3, 5, 4},
-				{8, 3, 4, 1, 5, 9, 6, 7, 2}
-			},
-			
-	};
-	
-	
-	private int random;
-	
-	private int[][] sudoku_risolto;
-	
-	private int[][] sudoku_sfida;
+	// Id of the shared puzzle definition, see PuzzleCatalog
+	private String puzzleId;
+	
+	// Not serialized: peers resolve the definition by id from the catalog
+	private transient Puzzle puzzle;
+	
+	private Board sudoku_sfida;
 	
 	public Sudoku(int random) {
 		
-		
-		this.random = random;
-		this.sudoku_risolto = sudokuList[random];
-		this.sudoku_sfida = Arrays.stream(this.sudoku_risolto).map(int[]::clone).toArray(int[][]::new);
-		complica_sudoku();
+		this(PuzzleCatalog.legacy(random));
 		
 	}
 	
-	private void complica_sudoku(){
+	public Sudoku(Puzzle puzzle) {
 		
+		this.puzzle = PuzzleCatalog.intern(puzzle);
+		this.puzzleId = this.puzzle.getId();
+		this.sudoku_sfida = puzzle.getGivens();
 		
-//		sudoku_sfida[3][3] = 0;
-//		sudoku_sfida[4][4] = 0;
+	}
+	
+	// Rebuilds a Sudoku from its puzzle id and current board, the definition is resolved lazily
+	public Sudoku(String puzzleId, Board sudoku_sfida) {
 		
-		for(int i=0;i<9;i++) {
-			for(int j=0;j<9;j++) {
-				if(i%2==0 && j%2==0) sudoku_sfida[i][j] = 0;
-				else if( i%2==1 && j%2==1) sudoku_sfida[i][j] = 0;
-			}
-		}
+		this.puzzleId = puzzleId;
+		this.sudoku_sfida = sudoku_sfida;
 		
 	}
+	
+	public String getPuzzleId() {
+		return puzzleId;
+	}
+	
+	public Puzzle getPuzzle() {
+		if (puzzle == null) puzzle = PuzzleCatalog.resolve(puzzleId);
+		return puzzle;
+	}
+	
+	/**
+	 * Solution as a new board, the puzzle definition itself is shared and immutable.
+	 */
+	public Board getRisolto() {
+		return getPuzzle().getSolution();
+	}
+	
+	public int getSoluzione(int x, int y) {
+		return getPuzzle().solutionAt(x, y);
+	}
 
-	public int[][] getSudoku_risolto() {
-		return sudoku_risolto;
+	public Board getSfida() {
+		return sudoku_sfida;
 	}
 
-	public void setSudoku_risolto(int[][] sudoku_risolto) {
-		this.sudoku_risolto = sudoku_risolto;
+	public int[][] getSudoku_risolto() {
+		return getRisolto().toMatrix();
 	}
 
 	public int[][] getSudoku_sfida() {
-		return sudoku_sfida;
+		return sudoku_sfida.toMatrix();
 	}
 
 	public void setSudoku_sfida(int[][] sudoku_sfida) {
-		this.sudoku_sfida = sudoku_sfida;
+		this.sudoku_sfida = new Board(sudoku_sfida);
+	}
+	
+	/**
+	 * Places a value in the challenge board, O(1).
+	 * @return true if the cell was empty and the value is valid there
+	 */
+	public boolean placeValue(int x, int y, int value) {
+		return sudoku_sfida.place(x, y, value);
+	}
+	
+	public boolean isComplete() {
+		return sudoku_sfida.isComplete();
 	}
 	
 	public void printSudoku(int[][] sudoku) {
@@ -163,6 +98,12 @@ public class Sudoku implements Serializable{
 		
 	}
 	
+	public void printSudoku(Board board) {
+		
+		printSudoku(board.toMatrix());
+		
+	}
+	
 	public int contaZeri(int[][] sudoku) {
 		
 		int count=0;
@@ -176,6 +117,12 @@ public class Sudoku implements Serializable{
 		
 	}
 	
+	public int contaZeri() {
+		
+		return sudoku_sfida.getEmptyCount();
+		
+	}
+	
 	
 	
 	
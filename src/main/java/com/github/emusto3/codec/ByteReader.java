@@ -0,0 +1,153 @@
+package com.github.emusto3.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor over an encoded byte array, reads in place without copying the input.
+ */
+class ByteReader {
+
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+
+    ByteReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    ByteReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readLong() throws IOException {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the element count of a list or map. Every element takes at least one byte,
+     * so a count past the end of the data is rejected before anything is allocated for it.
+     */
+    int readCount() throws IOException {
+        int count = readVarInt();
+        if (count < 0 || count > limit - position) {
+            throw new IOException("Malformed count " + count);
+        }
+        return count;
+    }
+
+    byte[] readBytes() throws IOException {
+        int length = readVarInt();
+        require(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    String readString() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Reads a record length and returns the position where the record ends
+     */
+    int beginRecord() throws IOException {
+        require(4);
+        int length = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+                | ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+        position += 4;
+        if (length < 0 || position + length > limit) {
+            throw new IOException("Truncated record");
+        }
+        return position + length;
+    }
+
+    /**
+     * True while the current record still has fields; older encoders stop earlier
+     */
+    boolean hasMore(int recordEnd) {
+        return position < recordEnd;
+    }
+
+    /**
+     * Skips fields appended by newer encoders
+     */
+    void endRecord(int recordEnd) {
+        position = recordEnd;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void skip(int length) throws IOException {
+        require(length);
+        position += length;
+    }
+
+    private void require(int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Negative length " + length);
+        }
+        if (length > limit - position) {
+            throw new IOException("Unexpected end of data");
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package com.github.emusto3.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.emusto3.beans.Board;
+import com.github.emusto3.beans.Challenge;
+import com.github.emusto3.beans.ChallengeSummary;
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.LobbyEvent;
+import com.github.emusto3.beans.Message;
+import com.github.emusto3.beans.MessageType;
+import com.github.emusto3.beans.MoveApplied;
+import com.github.emusto3.beans.Pair;
+import com.github.emusto3.beans.Player;
+import com.github.emusto3.beans.Puzzle;
+import com.github.emusto3.beans.RoomRequest;
+import com.github.emusto3.beans.Sudoku;
+
+import net.tomp2p.peers.PeerAddress;
+import net.tomp2p.storage.Data;
+
+/**
+ * Hand-written binary encoding for the objects stored in the DHT.
+ *
+ * Every payload starts with the format version and a type tag. Each object is a
+ * length-prefixed record whose fields are written in a fixed order; new versions
+ * only append fields. Decoders default the fields an older encoder did not write
+ * and skip the ones a newer encoder added, so peers on different versions can
+ * still read each other's records.
+ */
+public final class Codec {
+
+    public static final int VERSION = 1;
+
+    private static final int TYPE_CHALLENGE = 1;
+    private static final int TYPE_CHALLENGE_LIST = 2;
+    private static final int TYPE_PLAYER = 3;
+    private static final int TYPE_PLAYER_LIST = 4;
+    private static final int TYPE_PUZZLE = 5;
+    private static final int TYPE_MOVE = 6;
+    private static final int TYPE_MESSAGE = 7;
+    private static final int TYPE_SUMMARY = 8;
+
+    private static final int FLAG_TERMINATED = 1;
+    private static final int FLAG_STARTED = 1 << 1;
+    private static final int FLAG_FULL = 1 << 2;
+
+    private Codec() {
+    }
+
+    // TomP2P wrappers
+
+    public static Data toData(Challenge challenge) {
+        return new Data(encodeChallenge(challenge));
+    }
+
+    public static Data toData(Puzzle puzzle) {
+        return new Data(encodePuzzle(puzzle));
+    }
+
+    public static Data toData(ChallengeSummary summary) {
+        return new Data(encodeSummary(summary));
+    }
+
+    public static Data toData(Player player) {
+        return new Data(encodePlayer(player));
+    }
+
+    public static Challenge challengeFrom(Data data) throws IOException {
+        return decodeChallenge(data.toBytes());
+    }
+
+    public static Puzzle puzzleFrom(Data data) throws IOException {
+        return decodePuzzle(data.toBytes());
+    }
+
+    public static ChallengeSummary summaryFrom(Data data) throws IOException {
+        return decodeSummary(data.toBytes());
+    }
+
+    public static Player playerFrom(Data data) throws IOException {
+        return decodePlayer(data.toBytes());
+    }
+
+    // Top-level payloads
+
+    public static byte[] encodeChallenge(Challenge challenge) {
+        ByteWriter out = header(TYPE_CHALLENGE, 128);
+        writeChallenge(out, challenge);
+        return out.toByteArray();
+    }
+
+    public static Challenge decodeChallenge(byte[] bytes) throws IOException {
+        ByteReader in = header(bytes, TYPE_CHALLENGE);
+        return readChallenge(in);
+    }
+
+    public static byte[] encodeChallenges(List<Challenge> challenges) {
+        ByteWriter out = header(TYPE_CHALLENGE_LIST, 64 + challenges.size() * 128);
+        writeChallenges(out, challenges);
+        return out.toByteArray();
+    }
+
+    public static ArrayList<Challenge> decodeChallenges(byte[] bytes) throws IOException {
+        return readChallenges(header(bytes, TYPE_CHALLENGE_LIST));
+    }
+
+    public static byte[] encodeSummary(ChallengeSummary summary) {
+        ByteWriter out = header(TYPE_SUMMARY, 32);
+        writeSummary(out, summary);
+        return out.toByteArray();
+    }
+
+    public static ChallengeSummary decodeSummary(byte[] bytes) throws IOException {
+        return readSummary(header(bytes, TYPE_SUMMARY));
+    }
+
+    public static byte[] encodePlayer(Player player) {
+        ByteWriter out = header(TYPE_PLAYER, 64);
+        writePlayer(out, player);
+        return out.toByteArray();
+    }
+
+    public static Player decodePlayer(byte[] bytes) throws IOException {
+        return readPlayer(header(bytes, TYPE_PLAYER));
+    }
+
+    public static byte[] encodePlayers(List<Player> players) {
+        ByteWriter out = header(TYPE_PLAYER_LIST, 16 + players.size() * 64);
+        out.writeVarInt(players.size());
+        for (Player player : players) {
+            writePlayer(out, player);
+        }
+        return out.toByteArray();
+    }
+
+    public static ArrayList<Player> decodePlayers(byte[] bytes) throws IOException {
+        ByteReader in = header(bytes, TYPE_PLAYER_LIST);
+        int size = in.readCount();
+        ArrayList<Player> players = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            players.add(readPlayer(in));
+        }
+        return players;
+    }
+
+    public static byte[] encodePuzzle(Puzzle puzzle) {
+        ByteWriter out = header(TYPE_PUZZLE, 96);
+        int mark = out.beginRecord();
+        byte[] packed = new byte[2 * Board.PACKED_LENGTH];
+        puzzle.writeTo(packed, 0);
+        out.writeByte(puzzle.getDifficulty().ordinal());
+        out.writeRaw(packed, 0, packed.length);
+        out.endRecord(mark);
+        return out.toByteArray();
+    }
+
+    public static Puzzle decodePuzzle(byte[] bytes) throws IOException {
+        ByteReader in = header(bytes, TYPE_PUZZLE);
+        int end = in.beginRecord();
+        Difficulty difficulty = constant(Difficulty.values(), in.readByte(), "difficulty");
+        int offset = in.position();
+        in.skip(2 * Board.PACKED_LENGTH);
+        byte[] givens = Arrays.copyOfRange(in.buffer(), offset, offset + Board.PACKED_LENGTH);
+        byte[] solution = Arrays.copyOfRange(in.buffer(), offset + Board.PACKED_LENGTH, offset + 2 * Board.PACKED_LENGTH);
+        in.endRecord(end);
+        return new Puzzle(givens, solution, difficulty);
+    }
+
+    public static byte[] encodeMove(MoveApplied move) {
+        ByteWriter out = header(TYPE_MOVE, 32);
+        writeMove(out, move);
+        return out.toByteArray();
+    }
+
+    public static MoveApplied decodeMove(byte[] bytes) throws IOException {
+        return readMove(header(bytes, TYPE_MOVE));
+    }
+
+    /**
+     * Encodes a direct message: type tag and sender, then the payload record for that type
+     */
+    @SuppressWarnings("unchecked")
+    public static byte[] encodeMessage(Message message) {
+        ByteWriter out = header(TYPE_MESSAGE, 160);
+        int mark = out.beginRecord();
+        out.writeByte(message.getType().ordinal());
+        out.writeString(message.getSender());
+
+        switch (message.getType()) {
+            case CHALLENGE_LIST:
+                writeChallenges(out, (List<Challenge>) message.getPayload());
+                break;
+            case CHALLENGE:
+                writeChallenge(out, (Challenge) message.getPayload());
+                break;
+            case MOVE:
+                writeMove(out, (MoveApplied) message.getPayload());
+                break;
+            case LOBBY:
+                writeSummaries(out, (List<ChallengeSummary>) message.getPayload());
+                break;
+            case LOBBY_EVENT:
+                writeLobbyEvent(out, (LobbyEvent) message.getPayload());
+                break;
+            case ROOM_REQUEST:
+                writeRoomRequest(out, (RoomRequest) message.getPayload());
+                break;
+        }
+
+        out.writeLong(message.getId());
+        out.writeVarInt(message.getRelay().size());
+        for (Player player : message.getRelay()) {
+            writePlayer(out, player);
+        }
+        out.endRecord(mark);
+        return out.toByteArray();
+    }
+
+    public static Message decodeMessage(byte[] bytes) throws IOException {
+        ByteReader in = header(bytes, TYPE_MESSAGE);
+        int end = in.beginRecord();
+        MessageType type = constant(MessageType.values(), in.readByte(), "message type");
+        String sender = in.readString();
+
+        Object payload = null;
+        switch (type) {
+            case CHALLENGE_LIST:
+                payload = readChallenges(in);
+                break;
+            case CHALLENGE:
+                payload = readChallenge(in);
+                break;
+            case MOVE:
+                payload = readMove(in);
+                break;
+            case LOBBY:
+                payload = readSummaries(in);
+                break;
+            case LOBBY_EVENT:
+                payload = readLobbyEvent(in);
+                break;
+            case ROOM_REQUEST:
+                payload = readRoomRequest(in);
+                break;
+        }
+
+        long id = 0;
+        List<Player> relay = new ArrayList<>();
+        if (in.hasMore(end)) {
+            id = in.readLong();
+            int size = in.readCount();
+            for (int i = 0; i < size; i++) {
+                relay.add(readPlayer(in));
+            }
+        }
+        in.endRecord(end);
+        return new Message(type, sender, payload, id, relay);
+    }
+
+    /**
+     * Type of an encoded message, read without decoding the rest. Null if the bytes are not a message.
+     */
+    public static MessageType messageType(byte[] bytes) {
+        // Version, payload type, record length, then the message type
+        if (bytes.length < 7 || bytes[0] == 0 || bytes[1] != TYPE_MESSAGE) {
+            return null;
+        }
+        int tag = bytes[6] & 0xFF;
+        return tag < MessageType.values().length ? MessageType.values()[tag] : null;
+    }
+
+    // Records
+
+    private static void writeChallenge(ByteWriter out, Challenge challenge) {
+        int mark = out.beginRecord();
+        out.writeString(challenge.getCodice_partita());
+        out.writeString(challenge.getOwner());
+
+        int flags = (challenge.isTerminated() ? FLAG_TERMINATED : 0)
+                | (challenge.isStarted() ? FLAG_STARTED : 0)
+                | (challenge.isFull() ? FLAG_FULL : 0);
+        out.writeByte(flags);
+
+        Map<String, Integer> scores = challenge.getPlayers_scores();
+        out.writeVarInt(scores.size());
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeSignedVarInt(entry.getValue());
+        }
+
+        Pair<String, Integer> winner = challenge.getWinner();
+        out.writeBoolean(winner != null);
+        if (winner != null) {
+            out.writeString(winner.element0());
+            out.writeSignedVarInt(winner.element1());
+        }
+
+        writeSudoku(out, challenge.getSudoku_board());
+        out.writeVarLong(challenge.getVersion());
+        out.endRecord(mark);
+    }
+
+    private static Challenge readChallenge(ByteReader in) throws IOException {
+        int end = in.beginRecord();
+        Challenge challenge = new Challenge();
+        challenge.setCodice_partita(in.readString());
+        challenge.setOwner(in.readString());
+
+        int flags = in.readByte();
+        challenge.setTerminated((flags & FLAG_TERMINATED) != 0);
+        challenge.setStarted((flags & FLAG_STARTED) != 0);
+        challenge.setFull((flags & FLAG_FULL) != 0);
+
+        int players = in.readCount();
+        HashMap<String, Integer> scores = new HashMap<>(players * 2);
+        for (int i = 0; i < players; i++) {
+            String nickname = in.readString();
+            scores.put(nickname, in.readSignedVarInt());
+        }
+        challenge.setPlayers_scores(scores);
+
+        if (in.readBoolean()) {
+            String nickname = in.readString();
+            challenge.setWinner(new Pair<>(nickname, in.readSignedVarInt()));
+        }
+
+        challenge.setSudoku_board(readSudoku(in));
+        if (in.hasMore(end)) {
+            challenge.setVersion(in.readVarLong());
+        }
+        in.endRecord(end);
+        return challenge;
+    }
+
+    private static void writeChallenges(ByteWriter out, List<Challenge> challenges) {
+        out.writeVarInt(challenges.size());
+        for (Challenge challenge : challenges) {
+            writeChallenge(out, challenge);
+        }
+    }
+
+    private static ArrayList<Challenge> readChallenges(ByteReader in) throws IOException {
+        int size = in.readCount();
+        ArrayList<Challenge> challenges = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            challenges.add(readChallenge(in));
+        }
+        return challenges;
+    }
+
+    private static void writeSummary(ByteWriter out, ChallengeSummary summary) {
+        int mark = out.beginRecord();
+        out.writeString(summary.getCodice_partita());
+        out.writeString(summary.getOwner());
+        out.writeVarInt(summary.getPlayers());
+        out.writeByte(summary.isStarted() ? FLAG_STARTED : 0);
+        out.writeVarLong(summary.getVersion());
+        out.endRecord(mark);
+    }
+
+    private static ChallengeSummary readSummary(ByteReader in) throws IOException {
+        int end = in.beginRecord();
+        String gameCode = in.readString();
+        String owner = in.readString();
+        int players = in.readVarInt();
+        int flags = in.readByte();
+        long version = in.readVarLong();
+        in.endRecord(end);
+        return new ChallengeSummary(gameCode, owner, players, (flags & FLAG_STARTED) != 0, version);
+    }
+
+    private static void writeSummaries(ByteWriter out, List<ChallengeSummary> summaries) {
+        out.writeVarInt(summaries.size());
+        for (ChallengeSummary summary : summaries) {
+            writeSummary(out, summary);
+        }
+    }
+
+    private static ArrayList<ChallengeSummary> readSummaries(ByteReader in) throws IOException {
+        int size = in.readCount();
+        ArrayList<ChallengeSummary> summaries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            summaries.add(readSummary(in));
+        }
+        return summaries;
+    }
+
+    private static void writeLobbyEvent(ByteWriter out, LobbyEvent event) {
+        int mark = out.beginRecord();
+        out.writeByte(event.getKind().ordinal());
+        out.writeVarLong(event.getVersion());
+        out.writeString(event.getCodice_partita());
+        out.writeBoolean(event.getSummary() != null);
+        if (event.getSummary() != null) {
+            writeSummary(out, event.getSummary());
+        }
+        out.endRecord(mark);
+    }
+
+    private static LobbyEvent readLobbyEvent(ByteReader in) throws IOException {
+        int end = in.beginRecord();
+        LobbyEvent.Kind kind = constant(LobbyEvent.Kind.values(), in.readByte(), "lobby event");
+        long version = in.readVarLong();
+        String gameCode = in.readString();
+        ChallengeSummary summary = in.readBoolean() ? readSummary(in) : null;
+        in.endRecord(end);
+        return new LobbyEvent(kind, version, gameCode, summary);
+    }
+
+    private static void writeRoomRequest(ByteWriter out, RoomRequest request) {
+        int mark = out.beginRecord();
+        out.writeByte(request.getKind().ordinal());
+        out.writeString(request.getCodice_partita());
+        out.writeString(request.getNickname());
+        out.writeByte(Board.index(request.getX(), request.getY()));
+        out.writeByte(request.getValue());
+        out.endRecord(mark);
+    }
+
+    private static RoomRequest readRoomRequest(ByteReader in) throws IOException {
+        int end = in.beginRecord();
+        RoomRequest.Kind kind = constant(RoomRequest.Kind.values(), in.readByte(), "room request");
+        String gameCode = in.readString();
+        String nickname = in.readString();
+        int cell = in.readByte();
+        int value = in.readByte();
+        in.endRecord(end);
+        return new RoomRequest(kind, gameCode, nickname,
+                cell / Board.SIZE, cell % Board.SIZE, value);
+    }
+
+    private static void writeMove(ByteWriter out, MoveApplied move) {
+        int mark = out.beginRecord();
+        out.writeString(move.getCodice_partita());
+        out.writeByte(Board.index(move.getX(), move.getY()));
+        out.writeByte(move.getValue());
+        out.writeString(move.getNickname());
+        out.writeSignedVarInt(move.getScoreDelta());
+        out.writeVarLong(move.getSequence());
+        out.endRecord(mark);
+    }
+
+    private static MoveApplied readMove(ByteReader in) throws IOException {
+        int end = in.beginRecord();
+        String gameCode = in.readString();
+        int cell = in.readByte();
+        int value = in.readByte();
+        String nickname = in.readString();
+        int scoreDelta = in.readSignedVarInt();
+        long sequence = in.readVarLong();
+        in.endRecord(end);
+        return new MoveApplied(gameCode, cell / Board.SIZE, cell % Board.SIZE, value, nickname, scoreDelta, sequence);
+    }
+
+    private static void writeSudoku(ByteWriter out, Sudoku sudoku) {
+        int mark = out.beginRecord();
+        out.writeString(sudoku.getPuzzleId());
+        byte[] packed = new byte[Board.PACKED_LENGTH];
+        sudoku.getSfida().writeTo(packed, 0);
+        out.writeRaw(packed, 0, packed.length);
+        out.endRecord(mark);
+    }
+
+    private static Sudoku readSudoku(ByteReader in) throws IOException {
+        int end = in.beginRecord();
+        String puzzleId = in.readString();
+        int offset = in.position();
+        in.skip(Board.PACKED_LENGTH);
+        Board board = Board.fromBytes(in.buffer(), offset);
+        in.endRecord(end);
+        return new Sudoku(puzzleId, board);
+    }
+
+    private static void writePlayer(ByteWriter out, Player player) {
+        int mark = out.beginRecord();
+        out.writeString(player.getNickname());
+        out.writeBytes(player.getPeerAdd() == null ? new byte[0] : player.getPeerAdd().toByteArray());
+        out.endRecord(mark);
+    }
+
+    private static Player readPlayer(ByteReader in) throws IOException {
+        int end = in.beginRecord();
+        Player player = new Player(in.readString());
+        byte[] address = in.readBytes();
+        if (address.length > 0) {
+            player.setPeerAdd(new PeerAddress(address));
+        }
+        in.endRecord(end);
+        return player;
+    }
+
+    /**
+     * Enum constant written as its ordinal. A newer peer may send one this peer does not know.
+     */
+    private static <E extends Enum<E>> E constant(E[] values, int ordinal, String name) throws IOException {
+        if (ordinal >= values.length) {
+            throw new IOException("Unknown " + name + " " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    // Payload header
+
+    private static ByteWriter header(int type, int capacity) {
+        ByteWriter out = new ByteWriter(capacity);
+        out.writeByte(VERSION);
+        out.writeByte(type);
+        return out;
+    }
+
+    private static ByteReader header(byte[] bytes, int expectedType) throws IOException {
+        ByteReader in = new ByteReader(bytes);
+        int version = in.readByte();
+        int type = in.readByte();
+        if (version == 0 || type != expectedType) {
+            throw new IOException("Unexpected payload: version " + version + ", type " + type);
+        }
+        return in;
+    }
+}
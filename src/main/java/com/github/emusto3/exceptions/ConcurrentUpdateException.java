@@ -0,0 +1,8 @@
+package com.github.emusto3.exceptions;
+
+public class ConcurrentUpdateException extends Exception{
+
+		public ConcurrentUpdateException(String key, int attempts) {
+			super("Chiave " + key + " modificata da altri peer per " + attempts + " tentativi");
+		}
+}
@@ -0,0 +1,8 @@
+package com.github.emusto3.exceptions;
+
+public class HostUnreachableException extends Exception{
+
+		public HostUnreachableException(String gameCode, int failures) {
+			super("Host della partita " + gameCode + " non raggiungibile (" + failures + " tentativi falliti)");
+		}
+}
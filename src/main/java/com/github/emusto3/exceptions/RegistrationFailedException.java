@@ -0,0 +1,8 @@
+package com.github.emusto3.exceptions;
+
+public class RegistrationFailedException extends Exception{
+
+		public RegistrationFailedException(String nickname) {
+			super("Registrazione di " + nickname + " non riuscita: rete non raggiungibile, riprova");
+		}
+}
@@ -0,0 +1,191 @@
+package com.github.emusto3.game;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import net.tomp2p.futures.BaseFuture;
+
+/**
+ * Deadline and retries for one type of network call.
+ *
+ * Every attempt is cancelled when it passes its deadline, so a slow or partitioned
+ * peer costs at most {@code maxAttempts} deadlines plus the backoff in between.
+ * Idempotent calls are started again after a timeout, with exponential backoff and
+ * jitter. Other calls get a single attempt: one that timed out may still have been
+ * applied, and a second put-if-absent would then report its own write as taken.
+ *
+ * Failed results are returned as they are, the caller checks isSuccess as before.
+ * Only timeouts and errors are retried, since a failed get or put-if-absent is an answer.
+ */
+public class CallPolicy {
+
+    public enum Type {
+        // DHT get
+        READ,
+        // DHT put or remove, same outcome however many times it runs
+        WRITE,
+        // DHT put-if-absent
+        CONDITIONAL_WRITE,
+        // Direct message to another peer
+        DIRECT,
+        // Bootstrap, discovery and shutdown announcement
+        MEMBERSHIP
+    }
+
+    // Per type, e.g. -Dsudoku.call.read.timeout=1000 -Dsudoku.call.read.attempts=2
+    public static final String TIMEOUT_PROPERTY = "sudoku.call.%s.timeout";
+    public static final String ATTEMPTS_PROPERTY = "sudoku.call.%s.attempts";
+
+    private static final Map<Type, CallPolicy> POLICIES = new EnumMap<>(Type.class);
+
+    static {
+        POLICIES.put(Type.READ, configured(Type.READ, new CallPolicy(2000, 3, 50, 1000, true)));
+        POLICIES.put(Type.WRITE, configured(Type.WRITE, new CallPolicy(2000, 3, 50, 1000, true)));
+        POLICIES.put(Type.CONDITIONAL_WRITE, configured(Type.CONDITIONAL_WRITE, new CallPolicy(2000, 1, 50, 1000, false)));
+        POLICIES.put(Type.DIRECT, configured(Type.DIRECT, new CallPolicy(3000, 1, 50, 1000, false)));
+        POLICIES.put(Type.MEMBERSHIP, configured(Type.MEMBERSHIP, new CallPolicy(5000, 3, 200, 2000, true)));
+    }
+
+    private final int timeoutMillis;
+    private final int maxAttempts;
+    private final int backoffMillis;
+    private final int maxBackoffMillis;
+    private final boolean idempotent;
+
+    // Metrics
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    /**
+     * @param maxAttempts ignored for calls that are not idempotent, which get one
+     */
+    public CallPolicy(int timeoutMillis, int maxAttempts, int backoffMillis, int maxBackoffMillis, boolean idempotent) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxAttempts = idempotent ? Math.max(1, maxAttempts) : 1;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.idempotent = idempotent;
+    }
+
+    private static CallPolicy configured(Type type, CallPolicy defaults) {
+        String name = type.name().toLowerCase();
+        return new CallPolicy(
+                Integer.getInteger(String.format(TIMEOUT_PROPERTY, name), defaults.timeoutMillis),
+                Integer.getInteger(String.format(ATTEMPTS_PROPERTY, name), defaults.maxAttempts),
+                defaults.backoffMillis,
+                defaults.maxBackoffMillis,
+                defaults.idempotent);
+    }
+
+    public static synchronized CallPolicy of(Type type) {
+        return POLICIES.get(type);
+    }
+
+    /**
+     * Replaces the policy of a call type, for the calls started from now on
+     */
+    public static synchronized void configure(Type type, CallPolicy policy) {
+        POLICIES.put(type, policy);
+    }
+
+    /**
+     * Starts the call and completes with its TomP2P future: the first successful
+     * attempt, or the last one if every attempt failed or timed out
+     * @param start starts one attempt, called again for each retry
+     */
+    public <F extends BaseFuture> CompletableFuture<F> call(Supplier<F> start) {
+        calls.incrementAndGet();
+        long begin = System.nanoTime();
+
+        return attempt(start, 1).whenComplete((done, failure) ->
+                maxMillis.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin), Math::max));
+    }
+
+    /**
+     * Whether the call succeeded, see {@link #call}
+     */
+    public CompletableFuture<Boolean> succeeded(Supplier<? extends BaseFuture> start) {
+        return call(start).thenApply(BaseFuture::isSuccess);
+    }
+
+    private <F extends BaseFuture> CompletableFuture<F> attempt(Supplier<F> start, int attempt) {
+        F future = start.get();
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = Futures.schedule(() -> {
+            if (!future.isCompleted()) {
+                expired.set(true);
+                future.cancel();
+            }
+        }, timeoutMillis);
+
+        return Futures.of(future).handle((done, failure) -> {
+            deadline.cancel(false);
+            boolean timedOut = expired.get() && (done == null || !done.isSuccess());
+            if (timedOut) {
+                timeouts.incrementAndGet();
+            }
+
+            if ((timedOut || failure != null) && attempt < maxAttempts) {
+                retries.incrementAndGet();
+                return Futures.delay(backoff(attempt)).thenCompose(delayed -> attempt(start, attempt + 1));
+            }
+            return failure == null ? CompletableFuture.completedFuture(done) : Futures.<F>failed(failure);
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Wait after the given failed attempt. Exponential backoff with full jitter:
+     * anywhere from 1 up to base * 2^(attempt - 1), capped, drawn anew on every call
+     */
+    public long backoff(int attempt) {
+        long cap = Math.max(1, Math.min(maxBackoffMillis, (long) backoffMillis << Math.min(attempt - 1, 20)));
+        return ThreadLocalRandom.current().nextLong(cap) + 1;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Attempts cancelled at their deadline
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Attempts started again after a timeout or an error
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Slowest call so far, retries and backoff included
+     */
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+}
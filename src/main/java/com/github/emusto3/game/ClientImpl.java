@@ -2,27 +2,46 @@ package com.github.emusto3.game;
 
 import java.awt.Robot;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.beryx.textio.TextIO;
 import org.beryx.textio.TextIoFactory;
 import org.beryx.textio.TextTerminal;
 
 import com.github.emusto3.beans.Challenge;
-import com.github.emusto3.beans.Pair;
+import com.github.emusto3.beans.ChallengeSummary;
+import com.github.emusto3.beans.LobbyEvent;
+import com.github.emusto3.beans.Message;
+import com.github.emusto3.beans.MessageType;
+import com.github.emusto3.beans.MoveApplied;
 import com.github.emusto3.beans.Player;
+import com.github.emusto3.beans.Puzzle;
+import com.github.emusto3.beans.RoomRequest;
 import com.github.emusto3.interfaces.Client;
 
+import com.github.emusto3.codec.Codec;
 import com.github.emusto3.exceptions.*;
+import com.github.emusto3.generator.PuzzleCatalog;
 import com.github.emusto3.interfaces.*;
 
 import net.tomp2p.dht.FutureGet;
-import net.tomp2p.dht.FutureRemove;
 import net.tomp2p.dht.PeerBuilderDHT;
 import net.tomp2p.dht.PeerDHT;
 import net.tomp2p.futures.FutureBootstrap;
@@ -31,28 +50,80 @@ import net.tomp2p.p2p.Peer;
 import net.tomp2p.p2p.PeerBuilder;
 import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.PeerAddress;
-import net.tomp2p.rpc.ObjectDataReply;
 import net.tomp2p.storage.Data;
 
-public class ClientImpl implements Client {
+public class ClientImpl implements Client, AsyncClient {
     
+    // Topics
+    public static final String LOBBY_TOPIC = "lobby";
+    public static final String ROOM_TOPIC_PREFIX = "room:";
+
+    // Rooms hosted in memory by their owner, see RoomHost
+    public static final String ROOM_HOST_PROPERTY = "sudoku.room.host";
+    // Requests in a row a host may leave unanswered before a participant takes over
+    public static final String HOST_FAILURES_PROPERTY = "sudoku.room.host.failures";
+    public static final int DEFAULT_HOST_FAILURES = 3;
+
     // Constants
     private final int DEFAULT_MASTER_PORT = 4000;
-    private final Number160 PLAYERS_KEY = Number160.createHash("players");
-    private final Number160 CHALLENGES_KEY = Number160.createHash("challenges");
+    private final String PLAYERS_INDEX = "players";
+    private final String CHALLENGES_INDEX = "challenges";
+    private final String PUZZLE_KEY_PREFIX = "puzzle:";
+    private final int CHECKPOINT_MILLIS = 500;
     
     // Network components
     private final Peer peer;
     private final PeerDHT dht;
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
+    private final FanOutDispatcher fanOut;
+    // Lobby events go along a tree when the fan-out is positive, directly to every player otherwise
+    private final TreeDisseminator lobbyTree;
+    private final boolean lobbyTreeEnabled;
+    // Lobby: one entry per room, spread over buckets
+    private final DhtIndex lobby;
+    // Players currently looking at the lobby, the only recipients of lobby events
+    private final DhtIndex lobbySubscribers;
+    // Player registry: one entry per nickname
+    private final DhtIndex registry;
+    // Room records, written with compare-and-set
+    private final RoomStore rooms;
+    // Reads of the lobby, rooms and players, hedged when enabled
+    private final HedgedReader reader = new HedgedReader();
+    // Recent reads, refreshed or dropped by incoming messages: lobby entries, rooms by code, player list
+    private final LocalCache<String, List<ChallengeSummary>> lobbyCache = new LocalCache<>(LocalCache.configuredTtl());
+    private final LocalCache<String, Challenge> roomCache = new LocalCache<>(LocalCache.configuredTtl());
+    private final LocalCache<String, ArrayList<Player>> playerCache = new LocalCache<>(LocalCache.configuredTtl());
+    
+    // Room hosting: changes go to the owner's peer instead of the DHT
+    private volatile boolean roomHosting = Boolean.getBoolean(ROOM_HOST_PROPERTY);
+    // Rooms this peer hosts as their owner
+    private final Map<String, RoomHost> hostedRooms = new ConcurrentHashMap<>();
+    // Host updates leave one at a time, in the order they were applied
+    private final ExecutorService hostBroadcasts = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "room-host"));
+    // Requests in a row the host of each room did not answer
+    private final Map<String, Integer> hostFailures = new ConcurrentHashMap<>();
+    private final int hostFailureLimit = Math.max(1, Integer.getInteger(HOST_FAILURES_PROPERTY, DEFAULT_HOST_FAILURES));
+    private final ScheduledExecutorService checkpoints = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "room-checkpoint"));
     
     // Game state
-    private ArrayList<Challenge> challenges = new ArrayList<>();
+    // Local copy of the lobby, kept up to date by lobby events, sorted by code
+    private final Map<String, ChallengeSummary> challenges = new ConcurrentSkipListMap<>();
+    // Rooms removed from the lobby, so a late update does not bring them back
+    private final Set<String> removedRooms = ConcurrentHashMap.newKeySet();
+    // Rooms read again after a missed move, their moves are dropped until the read completes
+    private final Set<String> resyncing = ConcurrentHashMap.newKeySet();
     private ArrayList<Player> players = new ArrayList<>();
+    // Address of each known player, the only lookup on the send paths
+    private final PeerIndex peerIndex = new PeerIndex();
     private Challenge currentChallenge = null;
     private Player currentPlayer = null;
     
-    // Legacy field kept for compatibility
-    private final ArrayList<String> s_topics = new ArrayList<>();
+    // Puzzle ids known to be stored in the DHT (published or fetched by this peer)
+    private final Set<String> storedPuzzles = ConcurrentHashMap.newKeySet();
+    private final PuzzleResolver puzzleResolver = this::fetchPuzzle;
+
+    // Topics this player is subscribed to
+    private final List<String> s_topics = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor - Initializes the P2P client and connects to the master peer
@@ -62,27 +133,41 @@ public class ClientImpl implements Client {
                 .ports(DEFAULT_MASTER_PORT + peerId)
                 .start();
         this.dht = new PeerBuilderDHT(peer).start();
+        this.fanOut = new FanOutDispatcher(peer, peerIndex);
+        this.lobbyTree = new TreeDisseminator(fanOut, TreeDisseminator.configuredFanOut(), this::dropLobbySubscriber);
+        this.lobbyTreeEnabled = TreeDisseminator.configuredFanOut() > 0;
+        this.lobby = new DhtIndex(dht, CHALLENGES_INDEX, reader);
+        this.lobbySubscribers = new DhtIndex(dht, "topic-" + LOBBY_TOPIC, reader);
+        this.registry = new DhtIndex(dht, PLAYERS_INDEX, reader);
+        this.rooms = new RoomStore(dht, reader);
 
         connectToMasterPeer(masterPeerAddress);
         setupMessageHandler(messageListener);
-        initializeDHTStructures();
+        PuzzleCatalog.addResolver(puzzleResolver);
+        checkpoints.scheduleWithFixedDelay(this::checkpointRooms, CHECKPOINT_MILLIS, CHECKPOINT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
     }
 
     /**
      * Connects to the master peer in the network
      */
     private void connectToMasterPeer(String masterPeerAddress) throws Exception {
-        FutureBootstrap bootstrapFuture = peer.bootstrap()
-                .inetAddress(InetAddress.getByName(masterPeerAddress))
+        InetAddress master = InetAddress.getByName(masterPeerAddress);
+        CallPolicy membership = CallPolicy.of(CallPolicy.Type.MEMBERSHIP);
+        FutureBootstrap bootstrapFuture = Futures.await(membership.call(() -> peer.bootstrap()
+                .inetAddress(master)
                 .ports(DEFAULT_MASTER_PORT)
-                .start();
-        bootstrapFuture.awaitUninterruptibly();
+                .start()));
 
         if (bootstrapFuture.isSuccess()) {
-            peer.discover()
+            Futures.await(membership.call(() -> peer.discover()
                     .peerAddress(bootstrapFuture.bootstrapTo().iterator().next())
-                    .start()
-                    .awaitUninterruptibly();
+                    .start()));
         } else {
             throw new MasterPeerNotFoundException();
         }
@@ -91,30 +176,67 @@ public class ClientImpl implements Client {
     /**
      * Sets up the message handler for incoming P2P messages
      */
+    @SuppressWarnings("unchecked")
     private void setupMessageHandler(final MessageListener messageListener) {
-        peer.objectDataReply(new ObjectDataReply() {
-            public Object reply(PeerAddress sender, Object request) throws Exception {
-                return messageListener.parseMessage(request);
+        // State is updated here, the listener is only told about accepted updates
+        dispatcher.register(MessageType.LOBBY_EVENT, (sender, message) -> {
+            seen(sender, message);
+            // Passed down the tree first, whatever the local mode, so the subtree is not held up
+            if (!lobbyTree.relay(message)) {
+                return; // Already received along another path
+            }
+            // Relays can still reach a player who has just left the lobby screen
+            if (isSubscribed(LOBBY_TOPIC) && applyLobbyEvent((LobbyEvent) message.getPayload())) {
+                messageListener.parseMessage(message);
+            }
+        });
+        dispatcher.register(MessageType.CHALLENGE, (sender, message) -> {
+            seen(sender, message);
+            Challenge challenge = (Challenge) message.getPayload();
+            if (!updateChallenge(challenge)) {
+                return;
+            }
+            // Handed over by the previous owner, who stored this state before sending it
+            if (roomHosting && currentPlayer.getNickname().equals(challenge.getOwner())) {
+                startHosting(challenge);
+            }
+            if (isSubscribed(roomTopic(challenge.getCodice_partita()))) {
+                messageListener.parseMessage(message);
+            }
+        });
+        dispatcher.register(MessageType.MOVE, (sender, message) -> {
+            seen(sender, message);
+            MoveApplied move = (MoveApplied) message.getPayload();
+            if (applyMove(move) && isSubscribed(roomTopic(move.getCodice_partita()))) {
+                messageListener.parseMessage(message);
             }
         });
-    }
 
-    /**
-     * Initializes the DHT structures for players and challenges
-     */
-    private void initializeDHTStructures() throws Exception {
-        initializeDHTKey(PLAYERS_KEY, players);
-        initializeDHTKey(CHALLENGES_KEY, challenges);
+        dispatcher.registerRequest(MessageType.ROOM_REQUEST, (sender, message) -> {
+            RoomRequest request = (RoomRequest) message.getPayload();
+            RoomHost host = hostedRooms.get(request.getCodice_partita());
+            // No answer tells the sender this peer does not host the room (any more)
+            return host == null ? null : Codec.encodeMessage(serveRoomRequest(host, request));
+        });
+
+        peer.objectDataReply(dispatcher);
     }
 
     /**
-     * Helper method to initialize a DHT key with default data if it doesn't exist
+     * Learns addresses from a received message: the sender's, when it was not relayed,
+     * and those of the players on its relay list. A message from a player missing from
+     * the local list means the list is out of date.
      */
-    private void initializeDHTKey(Number160 key, Object defaultData) throws Exception {
-        try {
-            dht.get(key).start().awaitUninterruptibly();
-        } catch (Exception e) {
-            dht.put(key).data(new Data(defaultData)).start().awaitUninterruptibly();
+    private void seen(PeerAddress sender, Message message) {
+        if (message.getSender() != null && !peerIndex.contains(message.getSender())) {
+            playerCache.invalidate(PLAYERS_INDEX);
+        }
+        if (message.getId() == 0) {
+            peerIndex.put(message.getSender(), sender);
+        } else if (message.getRelay() != null) {
+            for (Player player : message.getRelay()) {
+                peerIndex.put(player);
+            }
         }
     }
 
@@ -132,120 +254,258 @@ public class ClientImpl implements Client {
     }
 
     /**
-     * Registers a new player if the nickname is available
+     * Registers a new player if the nickname is available.
+     * The put-if-absent on the nickname's own entry is the availability check.
+     * @return false if the nickname belongs to another player
+     * @throws RegistrationFailedException if the registry could not be reached
      */
     private boolean registerPlayer(String nickname) throws Exception {
+        Player player = new Player(nickname, peer.peerAddress());
+        boolean registered;
         try {
-            FutureGet futureGet = dht.get(PLAYERS_KEY).start().awaitUninterruptibly();
-
-            if (futureGet.isSuccess()) {
-                if (!futureGet.isEmpty()) {
-                    players = (ArrayList<Player>) futureGet.dataMap().values().iterator().next().object();
-
-                    if (isNicknameAlreadyUsed(nickname)) {
-                        return false;
-                    }
+            registered = registry.putIfAbsent(nickname, Codec.toData(player));
+            if (!registered) {
+                // Refused because the nickname is taken, or lost: only the entry tells.
+                // A put that timed out after landing left this peer's own entry.
+                Data entry = registry.get(nickname);
+                if (entry == null) {
+                    throw new RegistrationFailedException(nickname);
                 }
-
-                currentPlayer = new Player(nickname, peer.peerAddress());
-                players.add(currentPlayer);
-                dht.put(PLAYERS_KEY).data(new Data(players)).start().awaitUninterruptibly();
-                return true;
+                registered = peer.peerAddress().equals(Codec.playerFrom(entry).getPeerAdd());
             }
+        } catch (RegistrationFailedException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
+            throw new RegistrationFailedException(nickname);
         }
 
+        if (registered) {
+            currentPlayer = player;
+            players.add(player);
+            peerIndex.put(player);
+        }
+        return registered;
+    }
+
+    @Override
+    public boolean generateNewSudoku(String gameCode, int seed) throws Exception {
+        try {
+            if (checkChallenge(gameCode)) {
+                return Futures.await(generateNewSudokuAsync(gameCode, seed));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
         return false;
     }
 
+    @Override
+    public CompletableFuture<Boolean> generateNewSudokuAsync(String gameCode, int seed) {
+        // Puzzle comes from the pre-generated pool, only built here when the pool is empty
+        Challenge challenge = new Challenge(gameCode, currentPlayer.getNickname(), seed);
+        ChallengeSummary summary = new ChallengeSummary(challenge);
+
+        // Room, lobby entry and puzzle are independent writes, all in flight at once
+        CompletableFuture<Boolean> room = rooms.createAsync(challenge);
+        CompletableFuture<Boolean> entry = lobby.putIfAbsentAsync(gameCode, Codec.toData(summary));
+        CompletableFuture<Void> puzzle = publishPuzzleAsync(challenge.getSudoku_board().getPuzzle());
+
+        return CompletableFuture.allOf(room, entry, puzzle).handle((stored, failure) -> {
+            Throwable error = failure;
+            if (error == null && room.join() && entry.join()) {
+                try {
+                    if (roomHosting) {
+                        startHosting(challenge);
+                    }
+                    currentChallenge = challenge;
+                    return publishLobbyEventAsync(LobbyEvent.Kind.ADDED, gameCode, summary).thenApply(published -> true);
+                } catch (Exception e) {
+                    error = e;
+                }
+            }
+
+            // Code already taken or a write failed: undo whichever writes went through
+            if (written(room)) {
+                rooms.removeAsync(gameCode);
+            }
+            if (written(entry)) {
+                lobby.removeAsync(gameCode);
+            }
+            return error == null ? CompletableFuture.completedFuture(false) : Futures.<Boolean>failed(error);
+        }).thenCompose(Function.identity());
+    }
+
     /**
-     * Checks if a nickname is already in use
+     * Whether a write is known to have gone through
      */
-    private boolean isNicknameAlreadyUsed(String nickname) {
-        return players.stream()
-                .anyMatch(player -> player.getNickname().equals(nickname));
+    private static boolean written(CompletableFuture<Boolean> write) {
+        return write.isDone() && !write.isCompletedExceptionally() && write.join();
     }
 
-    @Override
-    public boolean generateNewSudoku(String gameCode, int seed) throws Exception {
-        try {
-            currentChallenge = new Challenge(gameCode, currentPlayer.getNickname(), seed);
+    /**
+     * Stores a puzzle definition under its content hash, once.
+     * Definitions never change, so a puzzle already in the DHT is never sent again.
+     */
+    private CompletableFuture<Void> publishPuzzleAsync(Puzzle puzzle) {
+        if (storedPuzzles.contains(puzzle.getId())) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-            FutureGet futureGet = dht.get(Number160.createHash(gameCode)).start().awaitUninterruptibly();
-            
-            if (futureGet.isSuccess() && checkChallenge(gameCode)) {
-                if (!futureGet.isEmpty()) {
-                    return false; // Challenge already exists
-                }
+        return CallPolicy.of(CallPolicy.Type.CONDITIONAL_WRITE).call(() -> dht.put(puzzleKey(puzzle.getId()))
+                .data(Codec.toData(puzzle))
+                .putIfAbsent()
+                .start())
+                .handle((put, failure) -> failure == null && put.isSuccess())
+                .thenCompose(Futures.unchecked(put -> {
+                    if (put) {
+                        storedPuzzles.add(puzzle.getId());
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // Refused because another peer stored the same content, or lost: only a read tells
+                    return CallPolicy.of(CallPolicy.Type.READ).call(() -> dht.get(puzzleKey(puzzle.getId())).start())
+                            .thenApply(Futures.unchecked(get -> {
+                                if (!get.isSuccess() || get.isEmpty()) {
+                                    throw new IOException("Puzzle " + puzzle.getId() + " not stored");
+                                }
+                                storedPuzzles.add(puzzle.getId());
+                                return null;
+                            }));
+                }));
+    }
 
-                dht.put(Number160.createHash(gameCode))
-                        .data(new Data(currentChallenge))
-                        .start()
-                        .awaitUninterruptibly();
+    /**
+     * Fetches a puzzle definition from the DHT, used by the catalog on a local miss
+     */
+    private Puzzle fetchPuzzle(String puzzleId) throws Exception {
+        FutureGet futureGet = Futures.await(CallPolicy.of(CallPolicy.Type.READ).call(() -> dht.get(puzzleKey(puzzleId)).start()));
 
-                return addChallengeToList();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (futureGet.isSuccess() && !futureGet.isEmpty()) {
+            storedPuzzles.add(puzzleId);
+            return Codec.puzzleFrom(futureGet.data());
         }
-        return false;
+        return null;
+    }
+
+    private Number160 puzzleKey(String puzzleId) {
+        return Number160.createHash(PUZZLE_KEY_PREFIX + puzzleId);
     }
 
     /**
-     * Adds the current challenge to the global challenges list
+     * Applies a lobby change locally and sends it to every player.
+     * The change is already stored, so a failed notification is only logged:
+     * players who missed it see it at their next lobby read.
      */
-    private boolean addChallengeToList() throws Exception {
-        try {
-            FutureGet futureGet = dht.get(CHALLENGES_KEY).start().awaitUninterruptibly();
-            
-            if (futureGet.isSuccess()) {
-                challenges.add(currentChallenge);
-                dht.put(CHALLENGES_KEY).data(new Data(challenges)).start().awaitUninterruptibly();
-                
-                reloadPlayers();
-                notifyAllPlayersAboutChallengeUpdate();
-                return true;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    private CompletableFuture<Void> publishLobbyEventAsync(LobbyEvent.Kind kind, String gameCode, ChallengeSummary summary) {
+        ChallengeSummary last = summary != null ? summary : challenges.get(gameCode);
+        LobbyEvent event = new LobbyEvent(kind, last == null ? 0 : last.getVersion(), gameCode, summary);
+        applyLobbyEvent(event);
+        return notifyAllPlayersAboutChallengeUpdate(event).exceptionally(failure -> {
+            failure.printStackTrace();
+            return null;
+        });
+    }
+
+    /**
+     * Applies a lobby change unless the local entry comes from a newer room version.
+     * Events are ordered per room, so those of different rooms never wait on each other.
+     */
+    private boolean applyLobbyEvent(LobbyEvent event) {
+        String gameCode = event.getCodice_partita();
+        if (event.getKind() == LobbyEvent.Kind.REMOVED) {
+            removedRooms.add(gameCode);
+            return challenges.remove(gameCode) != null;
         }
-        return false;
+        if (event.getKind() == LobbyEvent.Kind.ADDED) {
+            // A code can be used again once its room is gone
+            removedRooms.remove(gameCode);
+        } else if (removedRooms.contains(gameCode)) {
+            return false;
+        }
+
+        ChallengeSummary summary = event.getSummary();
+        return challenges.merge(gameCode, summary,
+                (current, update) -> current.getVersion() > update.getVersion() ? current : update) == summary;
     }
 
     /**
-     * Notifies all players about challenge list updates
+     * Notifies the lobby subscribers about a lobby change
      */
-    private void notifyAllPlayersAboutChallengeUpdate() throws Exception {
-        for (Player player : players) {
-            if (player.getNickname().equals(currentPlayer.getNickname())) {
-                continue;
+    private CompletableFuture<Void> notifyAllPlayersAboutChallengeUpdate(LobbyEvent event) {
+        // A partial listing still reaches every subscriber it holds
+        return lobbySubscribers.listAsync().thenCompose(Futures.unchecked(listing -> {
+            List<Player> others = new ArrayList<>();
+            for (Data data : listing.getEntries()) {
+                Player player = Codec.playerFrom(data);
+                if (!player.getNickname().equals(currentPlayer.getNickname()) && player.getPeerAdd() != null) {
+                    others.add(player);
+                    peerIndex.put(player);
+                }
+            }
+
+            if (lobbyTreeEnabled) {
+                return lobbyTree.broadcast(new Message(MessageType.LOBBY_EVENT, currentPlayer.getNickname(), event), others);
             }
-            
-            FutureDirect futureDirect = dht.peer()
-                    .sendDirect(player.getPeerAdd())
-                    .object(challenges)
-                    .start();
-            futureDirect.awaitUninterruptibly();
+
+            Map<String, PeerAddress> recipients = new HashMap<>();
+            for (Player player : others) {
+                recipients.put(player.getNickname(), player.getPeerAdd());
+            }
+            return fanOut.sendAsync(recipients, encodeMessage(MessageType.LOBBY_EVENT, event)).thenAccept(failed -> {
+                for (String nickname : failed) {
+                    dropLobbySubscriber(nickname);
+                }
+            });
+        }));
+    }
+
+    /**
+     * Removes a subscriber a lobby event could not be sent to, so crashed peers do not
+     * stay in the index. A player still running adds itself back at its next lobby read.
+     */
+    private void dropLobbySubscriber(String nickname) {
+        lobbySubscribers.removeAsync(nickname);
+    }
+
+    public static String roomTopic(String gameCode) {
+        return ROOM_TOPIC_PREFIX + gameCode;
+    }
+
+    @Override
+    public void subscribe(String topic) throws Exception {
+        if (s_topics.contains(topic)) {
+            return;
         }
+        // A room's subscribers are its participants, so only the lobby needs a subscriber index
+        if (LOBBY_TOPIC.equals(topic)) {
+            lobbySubscribers.put(currentPlayer.getNickname(), Codec.toData(currentPlayer));
+        }
+        s_topics.add(topic);
     }
 
     @Override
-    public boolean checkChallenge(String gameCode) throws Exception {
-        try {
-            FutureGet futureGet = dht.get(CHALLENGES_KEY).start().awaitUninterruptibly();
-            
-            if (futureGet.isSuccess()) {
-                if (!futureGet.isEmpty()) {
-                    challenges = (ArrayList<Challenge>) futureGet.dataMap().values().iterator().next().object();
-                }
+    public void unsubscribe(String topic) throws Exception {
+        if (!s_topics.remove(topic)) {
+            return;
+        }
+        if (LOBBY_TOPIC.equals(topic)) {
+            lobbySubscribers.remove(currentPlayer.getNickname());
+            // No events from now on: a read cached before would go stale
+            lobbyCache.invalidate(CHALLENGES_INDEX);
+        }
+    }
 
-                if (isChallengeCodeAlreadyUsed(gameCode)) {
-                    throw new ChallengeAlreadyExistsException();
-                }
+    public boolean isSubscribed(String topic) {
+        return s_topics.contains(topic);
+    }
 
-                return true;
+    @Override
+    public boolean checkChallenge(String gameCode) throws Exception {
+        try {
+            if (lobby.contains(gameCode)) {
+                throw new ChallengeAlreadyExistsException();
             }
+            return true;
         } catch (ChallengeAlreadyExistsException e) {
             System.out.println("Sfida con codice partita " + gameCode + " già esistente");
         } catch (Exception e) {
@@ -254,23 +514,15 @@ public class ClientImpl implements Client {
         return false;
     }
 
-    /**
-     * Checks if a challenge code is already in use
-     */
-    private boolean isChallengeCodeAlreadyUsed(String gameCode) {
-        return challenges.stream()
-                .anyMatch(challenge -> challenge.getCodice_partita().equals(gameCode));
+    @Override
+    public CompletableFuture<Boolean> checkChallengeAsync(String gameCode) {
+        return lobby.containsAsync(gameCode).thenApply(exists -> !exists);
     }
 
     @Override
     public boolean removeChallenge(String gameCode) throws Exception {
         try {
-            FutureRemove futureRemove = dht.remove(Number160.createHash(gameCode))
-                    .all()
-                    .start()
-                    .awaitUninterruptibly();
-
-            return futureRemove.isSuccess();
+            return rooms.remove(gameCode);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -279,99 +531,163 @@ public class ClientImpl implements Client {
 
     @Override
     public void removeFromChallengeList() throws Exception {
-        try {
-            FutureGet futureGet = dht.get(CHALLENGES_KEY).start().awaitUninterruptibly();
-
-            if (futureGet.isSuccess()) {
-                if (!futureGet.isEmpty()) {
-                    challenges = (ArrayList<Challenge>) futureGet.dataMap().values().iterator().next().object();
-                    
-                    if (challenges.size() < 2) {
-                        challenges.clear();
-                    } else {
-                        challenges.remove(findCurrentChallengeIndex());
-                    }
+        removeFromLobby(currentChallenge.getCodice_partita());
+    }
 
-                    dht.put(CHALLENGES_KEY).data(new Data(challenges)).start().awaitUninterruptibly();
-                }
-                
-                reloadPlayers();
-                notifyAllPlayersAboutChallengeUpdate();
-            }
+    private void removeFromLobby(String gameCode) {
+        try {
+            Futures.await(removeFromLobbyAsync(gameCode));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    private CompletableFuture<Void> removeFromLobbyAsync(String gameCode) {
+        return lobby.removeAsync(gameCode).thenCompose(removed -> removed
+                ? publishLobbyEventAsync(LobbyEvent.Kind.REMOVED, gameCode, null)
+                : CompletableFuture.completedFuture(null));
+    }
+
     @Override
     public void reloadChallengeList() throws Exception {
         try {
-            FutureGet futureGet = dht.get(CHALLENGES_KEY).start().awaitUninterruptibly();
-
-            if (futureGet.isSuccess()) {
-                if (!futureGet.isEmpty()) {
-                    challenges = (ArrayList<Challenge>) futureGet.dataMap().values().iterator().next().object();
-                }
-            }
+            Futures.await(reloadChallengeListAsync());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     @Override
-    public void reloadPlayers() throws Exception {
-        try {
-            FutureGet futureGet = dht.get(PLAYERS_KEY).start().awaitUninterruptibly();
+    public CompletableFuture<Void> reloadChallengeListAsync() {
+        // Only lobby events keep a cached read up to date, and they reach subscribers only
+        boolean subscribed = isSubscribed(LOBBY_TOPIC);
+        if (subscribed && lobbyCache.get(CHALLENGES_INDEX) != null) {
+            return CompletableFuture.completedFuture(null); // Read within the TTL, kept up to date by events since
+        }
 
-            if (futureGet.isSuccess()) {
-                if (!futureGet.isEmpty()) {
-                    players = (ArrayList<Player>) futureGet.dataMap().values().iterator().next().object();
-                }
+        if (subscribed) {
+            // Back in the index if a failed send dropped this player
+            lobbySubscribers.putAsync(currentPlayer.getNickname(), Codec.toData(currentPlayer));
+        }
+        return lobby.listAsync().thenApply(Futures.unchecked(listing -> {
+            List<ChallengeSummary> read = new ArrayList<>();
+            for (Data data : listing.getEntries()) {
+                read.add(Codec.summaryFrom(data));
+            }
+            mergeLobby(read, listing.isComplete());
+            if (subscribed && listing.isComplete()) {
+                lobbyCache.put(CHALLENGES_INDEX, read);
             }
+            return null;
+        }));
+    }
+
+    /**
+     * Brings the local lobby in line with a read: of each room the newer of the read and
+     * the local entry is kept. Only a complete read drops the rooms missing from it, a
+     * partial one may have missed the bucket they are in.
+     */
+    private void mergeLobby(List<ChallengeSummary> read, boolean complete) {
+        Map<String, ChallengeSummary> entries = new HashMap<>();
+        for (ChallengeSummary summary : read) {
+            entries.put(summary.getCodice_partita(), summary);
+        }
+
+        if (complete) {
+            challenges.keySet().retainAll(entries.keySet());
+            // The read shows which rooms exist, removals no longer need to be remembered
+            removedRooms.clear();
+        } else {
+            entries.keySet().removeAll(removedRooms);
+        }
+        for (ChallengeSummary summary : entries.values()) {
+            challenges.merge(summary.getCodice_partita(), summary,
+                    (current, update) -> current.getVersion() > update.getVersion() ? current : update);
+        }
+    }
+
+    @Override
+    public void reloadPlayers() throws Exception {
+        try {
+            Futures.await(reloadPlayersAsync());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     @Override
-    public void updateChallengeList() throws Exception {
-        int challengeIndex = findCurrentChallengeIndex();
+    public CompletableFuture<Void> reloadPlayersAsync() {
+        if (playerCache.get(PLAYERS_INDEX) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return registry.listAsync().thenApply(Futures.unchecked(listing -> {
+            ArrayList<Player> read = new ArrayList<>();
+            for (Data data : listing.getEntries()) {
+                read.add(Codec.playerFrom(data));
+            }
+            if (!listing.isComplete()) {
+                // Players missing from a partial read may still be registered, none is dropped
+                for (Player player : read) {
+                    peerIndex.put(player);
+                }
+                return null;
+            }
+            setPlayers(read);
+            playerCache.put(PLAYERS_INDEX, read);
+            return null;
+        }));
+    }
 
-        if (challengeIndex == -1) {
+    @Override
+    public void updateChallengeList() throws Exception {
+        if (!challenges.containsKey(currentChallenge.getCodice_partita())) {
             throw new ChallengeNotFoundException();
         }
 
         try {
-            FutureGet futureGet = dht.get(CHALLENGES_KEY).start().awaitUninterruptibly();
-
-            if (futureGet.isSuccess()) {
-                if (!futureGet.isEmpty()) {
-                    challenges.get(challengeIndex)
-                            .setPlayers_scores(currentChallenge.getPlayers_scores());
-                }
-            }
-            
-            dht.put(CHALLENGES_KEY).data(new Data(challenges)).start().awaitUninterruptibly();
-            reloadPlayers();
-            notifyAllPlayersAboutChallengeUpdate();
+            Futures.await(updateLobbyEntryAsync());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Rewrites the current room's lobby entry and announces the change
+     */
+    private CompletableFuture<Void> updateLobbyEntryAsync() {
+        if (!challenges.containsKey(currentChallenge.getCodice_partita())) {
+            return Futures.failed(new ChallengeNotFoundException());
+        }
+
+        // Only this room's summary is rewritten
+        ChallengeSummary summary = new ChallengeSummary(currentChallenge);
+        return lobby.putAsync(summary.getCodice_partita(), Codec.toData(summary))
+                .thenCompose(stored -> publishLobbyEventAsync(LobbyEvent.Kind.UPDATED, summary.getCodice_partita(), summary));
+    }
+
     @Override
     public boolean reloadChallenge(String gameCode) throws Exception {
         try {
-            FutureGet futureGet = dht.get(Number160.createHash(gameCode)).start().awaitUninterruptibly();
-
-            if (futureGet.isSuccess()) {
-                if (futureGet.isEmpty()) {
-                    currentChallenge.setTerminated(true);
-                } else {
-                    currentChallenge = (Challenge) futureGet.dataMap().values().iterator().next().object();
-                }
+            if (cachedRoom(gameCode)) {
                 return true;
             }
+
+            // The host has the latest state, the DHT copy may trail it
+            Challenge challenge = roomHosting ? requestRoomState(new RoomRequest(RoomRequest.Kind.SYNC, gameCode,
+                    currentPlayer.getNickname())) : null;
+            if (challenge == null) {
+                challenge = rooms.read(gameCode);
+            }
+
+            if (challenge == null) {
+                roomCache.invalidate(gameCode);
+                currentChallenge.setTerminated(true);
+            } else {
+                roomCache.put(gameCode, challenge);
+                currentChallenge = challenge;
+            }
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -379,23 +695,46 @@ public class ClientImpl implements Client {
         return false;
     }
 
+    @Override
+    public CompletableFuture<Boolean> reloadChallengeAsync(String gameCode) {
+        if (cachedRoom(gameCode)) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        return hostedState(new RoomRequest(RoomRequest.Kind.SYNC, gameCode, currentPlayer.getNickname()))
+                .thenCompose(hosted -> hosted != null ? CompletableFuture.completedFuture(hosted) : rooms.readAsync(gameCode))
+                .thenApply(challenge -> {
+                    if (challenge == null) {
+                        roomCache.invalidate(gameCode);
+                        currentChallenge.setTerminated(true);
+                    } else {
+                        roomCache.put(gameCode, challenge);
+                        currentChallenge = challenge;
+                    }
+                    return true;
+                });
+    }
+
+    /**
+     * Serves a reload from the cached room, read or received within the TTL
+     */
+    private synchronized boolean cachedRoom(String gameCode) {
+        Challenge cached = roomCache.get(gameCode);
+        if (cached == null) {
+            return false;
+        }
+        if (currentChallenge == null || !currentChallenge.getCodice_partita().equals(gameCode)
+                || cached.getVersion() > currentChallenge.getVersion()) {
+            currentChallenge = cached;
+        }
+        return true;
+    }
+
     @Override
     public boolean sendUpdatedChallenge() throws Exception {
         try {
-            for (Map.Entry<String, Integer> entry : currentChallenge.getPlayers_scores().entrySet()) {
-                int playerIndex = findPlayerIndex(entry.getKey());
-                
-                if (playerIndex != -1) {
-                    FutureDirect futureDirect = dht.peer()
-                            .sendDirect(players.get(playerIndex).getPeerAdd())
-                            .object(currentChallenge)
-                            .start();
-                    futureDirect.awaitUninterruptibly();
-                }
-            }
+            fanOut.send(participantAddresses(), encodeMessage(MessageType.CHALLENGE, currentChallenge));
             return true;
-        } catch (IndexOutOfBoundsException e) {
-            System.out.println("Player non trovato nella lista dei partecipanti");
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -403,27 +742,19 @@ public class ClientImpl implements Client {
         return false;
     }
 
+    /**
+     * Sends the current room to the other participants
+     */
+    private CompletableFuture<Void> sendUpdatedChallengeAsync() {
+        return Futures.supply(this::participantAddresses)
+                .thenCompose(recipients -> fanOut.sendAsync(recipients, encodeMessage(MessageType.CHALLENGE, currentChallenge)))
+                .thenApply(failed -> null);
+    }
+
     @Override
     public boolean startChallenge(String gameCode) throws Exception {
         try {
-            FutureGet futureGet = dht.get(Number160.createHash(gameCode)).start().awaitUninterruptibly();
-
-            if (futureGet.isSuccess()) {
-                if (futureGet.isEmpty()) {
-                    currentChallenge.setTerminated(true);
-                } else {
-                    currentChallenge = (Challenge) futureGet.dataMap().values().iterator().next().object();
-                    currentChallenge.setStarted(true);
-                    
-                    dht.put(Number160.createHash(gameCode))
-                            .data(new Data(currentChallenge))
-                            .start()
-                            .awaitUninterruptibly();
-
-                    notifyAllChallengeParticipants();
-                }
-                return true;
-            }
+            return Futures.await(startChallengeAsync(gameCode));
         } catch (IndexOutOfBoundsException e) {
             System.out.println("Player non trovato nella lista dei partecipanti");
         } catch (Exception e) {
@@ -433,48 +764,68 @@ public class ClientImpl implements Client {
         return false;
     }
 
+    @Override
+    public CompletableFuture<Boolean> startChallengeAsync(String gameCode) {
+        RoomRequest request = new RoomRequest(RoomRequest.Kind.START, gameCode, currentPlayer.getNickname());
+
+        return hostedState(request).thenCompose(Futures.unchecked(hosted -> {
+            if (hosted != null) {
+                updateChallenge(hosted);
+                // The host has told the participants, the lobby still shows the room as waiting
+                return updateLobbyEntryAsync().thenApply(updated -> true);
+            }
+
+            return rooms.updateAsync(gameCode, room -> {
+                room.setStarted(true);
+                return true;
+            }).thenCompose(challenge -> {
+                if (challenge == null) {
+                    currentChallenge.setTerminated(true);
+                    return CompletableFuture.completedFuture(true);
+                }
+                currentChallenge = challenge;
+                return updateLobbyEntryAsync().thenCombine(sendUpdatedChallengeAsync(), (updated, sent) -> true);
+            });
+        }));
+    }
+
     /**
      * Notifies all challenge participants about updates
      */
     private void notifyAllChallengeParticipants() throws Exception {
-        for (Map.Entry<String, Integer> entry : currentChallenge.getPlayers_scores().entrySet()) {
-            if (entry.getKey().equals(currentPlayer.getNickname())) {
+        fanOut.send(participantAddresses(), encodeMessage(MessageType.CHALLENGE, currentChallenge));
+    }
+
+    /**
+     * Addresses of the other players in the current challenge
+     */
+    private Map<String, PeerAddress> participantAddresses() throws Exception {
+        return addressesOf(currentChallenge.getPlayers_scores().keySet());
+    }
+
+    /**
+     * Addresses of the given players, without this one
+     */
+    private Map<String, PeerAddress> addressesOf(Collection<String> nicknames) throws Exception {
+        Map<String, PeerAddress> recipients = new HashMap<>();
+
+        for (String nickname : nicknames) {
+            if (nickname.equals(currentPlayer.getNickname())) {
                 continue;
             }
-            
-            int playerIndex = findPlayerIndex(entry.getKey());
-            if (playerIndex != -1) {
-                FutureDirect futureDirect = dht.peer()
-                        .sendDirect(players.get(playerIndex).getPeerAdd())
-                        .object(currentChallenge)
-                        .start();
-                futureDirect.awaitUninterruptibly();
+
+            PeerAddress address = findPeerAddress(nickname);
+            if (address != null) {
+                recipients.put(nickname, address);
             }
         }
+        return recipients;
     }
 
     @Override
     public boolean joinChallenge(String gameCode) throws Exception {
         try {
-            FutureGet futureGet = dht.get(Number160.createHash(gameCode)).start().awaitUninterruptibly();
-
-            if (futureGet.isSuccess()) {
-                if (futureGet.isEmpty()) {
-                    throw new ChallengeNotFoundException();
-                }
-
-                currentChallenge = (Challenge) futureGet.dataMap().values().iterator().next().object();
-                currentChallenge.getPlayers_scores().put(currentPlayer.getNickname(), 0);
-                
-                dht.put(Number160.createHash(gameCode))
-                        .data(new Data(currentChallenge))
-                        .start()
-                        .awaitUninterruptibly();
-
-                updateChallengeList();
-                sendUpdatedChallenge();
-            }
-            return true;
+            return Futures.await(joinChallengeAsync(gameCode));
         } catch (ChallengeNotFoundException e) {
             System.out.println("Partita non trovata nella lista delle partite disponibili.");
         } catch (Exception e) {
@@ -483,185 +834,481 @@ public class ClientImpl implements Client {
         return false;
     }
 
+    @Override
+    public CompletableFuture<Boolean> joinChallengeAsync(String gameCode) {
+        String nickname = currentPlayer.getNickname();
+
+        return hostedState(new RoomRequest(RoomRequest.Kind.JOIN, gameCode, nickname)).thenCompose(hosted -> {
+            if (hosted != null) {
+                // The host has already told the other participants
+                currentChallenge = hosted;
+                return updateLobbyEntryAsync().thenApply(updated -> true);
+            }
+
+            return rooms.updateAsync(gameCode, room -> {
+                room.getPlayers_scores().put(nickname, 0);
+                return true;
+            }).thenCompose(Futures.unchecked(challenge -> {
+                if (challenge == null) {
+                    throw new ChallengeNotFoundException();
+                }
+                currentChallenge = challenge;
+                // Lobby entry and participants are updated at the same time
+                return updateLobbyEntryAsync().thenCombine(sendUpdatedChallengeAsync(), (updated, sent) -> true);
+            }));
+        });
+    }
+
     @Override
     public boolean quitChallenge(String gameCode) throws Exception {
         try {
-            FutureGet futureGet = dht.get(Number160.createHash(gameCode)).start().awaitUninterruptibly();
+            return Futures.await(quitChallengeAsync(gameCode));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
 
-            if (futureGet.isSuccess()) {
-                if (futureGet.isEmpty()) {
-                    currentChallenge.setTerminated(true);
-                    return true;
+    @Override
+    public CompletableFuture<Boolean> quitChallengeAsync(String gameCode) {
+        String nickname = currentPlayer.getNickname();
+
+        return hostedState(new RoomRequest(RoomRequest.Kind.QUIT, gameCode, nickname)).thenCompose(hosted -> {
+            if (hosted != null) {
+                // The host has told the remaining players, or deleted the room if it is now empty
+                currentChallenge = hosted;
+                if (hosted.getPlayers_scores().isEmpty()) {
+                    return CompletableFuture.completedFuture(true);
                 }
+                return updateLobbyAfterQuitAsync().thenApply(updated -> true);
+            }
 
-                currentChallenge = (Challenge) futureGet.dataMap().values().iterator().next().object();
-                currentChallenge.getPlayers_scores().remove(currentPlayer.getNickname());
+            // The last player leaving deletes the room instead of storing it empty
+            return rooms.updateAsync(gameCode, room -> {
+                room.getPlayers_scores().remove(nickname);
+                return !room.getPlayers_scores().isEmpty();
+            }).thenCompose(challenge -> {
+                if (challenge == null) {
+                    currentChallenge.setTerminated(true);
+                    return CompletableFuture.completedFuture(true);
+                }
 
+                currentChallenge = challenge;
                 if (currentChallenge.getPlayers_scores().size() == 0) {
-                    removeChallenge(currentChallenge.getCodice_partita());
-                } else {
-                    handlePlayerQuit(gameCode);
+                    return rooms.removeAsync(gameCode);
                 }
-            }
-            return true;
+                // Lobby entry and remaining players are updated at the same time
+                return updateLobbyAfterQuitAsync().thenCombine(sendUpdatedChallengeAsync(), (updated, sent) -> true);
+            });
+        });
+    }
+
+    /**
+     * Updates the room's lobby entry after a player left, removing it when one player is left
+     */
+    private CompletableFuture<Void> updateLobbyAfterQuitAsync() {
+        if (currentChallenge.getPlayers_scores().size() != 1) {
+            return updateLobbyEntryAsync();
+        }
+        return removeFromLobbyAsync(currentChallenge.getCodice_partita());
+    }
+
+    @Override
+    public Integer placeNumber(String gameCode, int x, int y, int value) throws Exception {
+        try {
+            return Futures.await(placeNumberAsync(gameCode, x, y, value));
+        } catch (HostUnreachableException e) {
+            System.out.println(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return false;
+        return -100;
+    }
+
+    @Override
+    public CompletableFuture<Integer> placeNumberAsync(String gameCode, int x, int y, int value) {
+        String nickname = currentPlayer.getNickname();
+        CompletableFuture<Message> hosted = roomHosting
+                ? Futures.supply(() -> askHost(new RoomRequest(RoomRequest.Kind.MOVE, gameCode, nickname, x, y, value)))
+                : CompletableFuture.completedFuture(null);
+
+        return hosted.thenCompose(Futures.unchecked(reply -> {
+            if (reply != null) {
+                MoveApplied move = (MoveApplied) reply.getPayload();
+                // Already part of the room state when this peer is the host
+                applyMove(move);
+                return CompletableFuture.completedFuture(move.getScoreDelta());
+            }
+
+            // Of simultaneous placements in the same cell only one wins the write, the
+            // others re-apply theirs to the latest board and find the cell taken
+            return storePlacementAsync(gameCode, x, y, value);
+        }));
     }
 
     /**
-     * Handles the logic when a player quits the challenge
+     * Writes a placement to the room in the DHT and tells the other participants
      */
-    private void handlePlayerQuit(String gameCode) throws Exception {
-        if (currentChallenge.getPlayers_scores().size() != 1) {
-            updateChallengeList();
-        } else {
-            removeFromChallengeList();
+    private CompletableFuture<Integer> storePlacementAsync(String gameCode, int x, int y, int value) {
+        String nickname = currentPlayer.getNickname();
+
+        // Re-evaluated against the latest board if another peer wins the write
+        int[] result = new int[1];
+        return rooms.updateAsync(gameCode, room -> {
+            result[0] = room.placeNumber(nickname, x, y, value);
+            if (result[0] == 0) {
+                return false; // Nothing changed, nothing to store or send
+            }
+            if (room.getSudoku_board().isComplete()) {
+                room.complete();
+            }
+            return true;
+        }).thenCompose(challenge -> {
+            if (challenge == null) {
+                currentChallenge.setTerminated(true);
+                return CompletableFuture.completedFuture(-100);
+            }
+
+            currentChallenge = challenge;
+            if (result[0] == 0) {
+                return CompletableFuture.completedFuture(0);
+            }
+
+            if (currentChallenge.isTerminated()) {
+                currentChallenge.getSudoku_board()
+                        .printSudoku(currentChallenge.getSudoku_board().getSfida());
+                return removeFromLobbyAsync(gameCode)
+                        .thenCombine(sendUpdatedChallengeAsync(), (removed, sent) -> result[0]);
+            }
+
+            MoveApplied move = new MoveApplied(gameCode, x, y, value, nickname, result[0], currentChallenge.getVersion());
+            return Futures.supply(this::participantAddresses)
+                    .thenCompose(recipients -> fanOut.sendAsync(recipients, encodeMessage(MessageType.MOVE, move)))
+                    .thenApply(failed -> result[0]);
+        });
+    }
+
+    private byte[] encodeMessage(MessageType type, Object payload) {
+        return Codec.encodeMessage(new Message(type, currentPlayer.getNickname(), payload));
+    }
+
+    @Override
+    public boolean applyMove(MoveApplied move) throws Exception {
+        String gameCode = move.getCodice_partita();
+        synchronized (this) {
+            if (currentChallenge == null || !currentChallenge.getCodice_partita().equals(gameCode)
+                    || resyncing.contains(gameCode)) {
+                return false; // Moves during a resync are in the snapshot or caught by the next gap
+            }
+
+            long version = currentChallenge.getVersion();
+            if (move.getSequence() <= version) {
+                return false; // Stale or duplicate
+            }
+            if (move.getSequence() == version + 1) {
+                currentChallenge.applyMove(move);
+                roomCache.put(gameCode, currentChallenge);
+                return true;
+            }
+
+            // Missed at least one move: resync from the full snapshot
+            roomCache.invalidate(gameCode);
+            resyncing.add(gameCode);
         }
 
-        notifyAllChallengeParticipants();
-        
-        dht.put(Number160.createHash(gameCode))
-                .data(new Data(currentChallenge))
-                .start()
-                .awaitUninterruptibly();
+        // Read outside the lock, the dispatch thread does not wait for it
+        reloadChallengeAsync(gameCode).whenComplete((reloaded, failure) -> {
+            resyncing.remove(gameCode);
+            if (failure != null) {
+                failure.printStackTrace();
+            }
+        });
+        return false;
     }
 
     @Override
-    public Integer placeNumber(String gameCode, int x, int y, int value) throws Exception {
-        try {
-            FutureGet futureGet = dht.get(Number160.createHash(gameCode)).start().awaitUninterruptibly();
+    public synchronized boolean updateChallenge(Challenge challenge) {
+        if (currentChallenge == null || !currentChallenge.getCodice_partita().equals(challenge.getCodice_partita())) {
+            return false;
+        }
+        if (challenge.getVersion() <= currentChallenge.getVersion()) {
+            return false; // Stale or duplicate, replies to parallel sends can arrive out of order
+        }
 
-            if (futureGet.isSuccess()) {
-                if (futureGet.isEmpty()) {
-                    currentChallenge.setTerminated(true);
-                    return -100;
-                }
+        // A snapshot holds the whole state, so a version gap is healed by taking it as is
+        currentChallenge = challenge;
+        roomCache.put(challenge.getCodice_partita(), challenge);
+        return true;
+    }
 
-                currentChallenge = (Challenge) futureGet.dataMap().values().iterator().next().object();
-                
-                Integer result = processNumberPlacement(x, y, value);
-                
-                if (isSudokuComplete()) {
-                    handleSudokuCompletion();
-                }
+    /**
+     * Makes this peer the host of a room it owns, from a state already stored in the DHT
+     */
+    private void startHosting(Challenge room) throws Exception {
+        if (!hostedRooms.containsKey(room.getCodice_partita())) {
+            hostedRooms.put(room.getCodice_partita(), new RoomHost(room, rooms));
+        }
+    }
 
-                dht.put(Number160.createHash(gameCode))
-                        .data(new Data(currentChallenge))
-                        .start()
-                        .awaitUninterruptibly();
-                
-                sendUpdatedChallenge();
-                return result;
+    /**
+     * Sends a request to the room's host and waits for the answer, served locally
+     * when this peer is the host. A host that cannot be reached is replaced by this peer.
+     * @return the answer, null if no peer hosts the room: the caller falls back to the DHT
+     */
+    private Message askHost(RoomRequest request) throws Exception {
+        String gameCode = request.getCodice_partita();
+        String owner = knownOwner(gameCode);
+
+        // A second attempt only if the owner changed since it was last seen
+        for (int attempt = 0; attempt < 2 && owner != null; attempt++) {
+            RoomHost host = hostedRooms.get(gameCode);
+            if (host != null) {
+                return serveRoomRequest(host, request);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            if (owner.equals(currentPlayer.getNickname())) {
+                return null; // Owned without hosting: hosting was off or given up
+            }
+
+            PeerAddress address = findPeerAddress(owner);
+            if (address == null) {
+                return takeOver(request, owner);
+            }
+
+            CallPolicy direct = CallPolicy.of(CallPolicy.Type.DIRECT);
+            byte[] encoded = encodeMessage(MessageType.ROOM_REQUEST, request);
+            FutureDirect futureDirect = Futures.await(direct.call(() -> peer.sendDirect(address)
+                    .connectionTimeoutTCPMillis(direct.getTimeoutMillis())
+                    .idleTCPMillis(direct.getTimeoutMillis())
+                    .object(encoded)
+                    .start()));
+
+            if (!futureDirect.isSuccess()) {
+                // One lost answer is not a dead host: taking over would drop its unsaved changes
+                int failures = hostFailures.merge(gameCode, 1, Integer::sum);
+                if (failures < hostFailureLimit) {
+                    throw new HostUnreachableException(gameCode, failures);
+                }
+                hostFailures.remove(gameCode);
+                return takeOver(request, owner);
+            }
+            hostFailures.remove(gameCode);
+            if (futureDirect.object() instanceof byte[]) {
+                return Codec.decodeMessage((byte[]) futureDirect.object());
+            }
+
+            Challenge room = rooms.read(gameCode);
+            String latest = room == null ? null : room.getOwner();
+            owner = owner.equals(latest) ? null : latest;
         }
-        return -100;
+        return null;
     }
 
     /**
-     * Processes the number placement and returns the score change
+     * Shortcut for the requests answered with the room state
      */
-    private Integer processNumberPlacement(int x, int y, int value) {
-        String playerNickname = currentPlayer.getNickname();
-        int currentScore = currentChallenge.getPlayers_scores().get(playerNickname);
-        
-        int correctValue = currentChallenge.getSudoku_board().getSudoku_risolto()[x][y];
-        int currentCellValue = currentChallenge.getSudoku_board().getSudoku_sfida()[x][y];
+    private Challenge requestRoomState(RoomRequest request) throws Exception {
+        Message reply = askHost(request);
+        return reply == null ? null : (Challenge) reply.getPayload();
+    }
 
-        if (correctValue != value) {
-            // Wrong value - lose a point
-            currentChallenge.getPlayers_scores().put(playerNickname, currentScore - 1);
-            return -1;
-        } else if (currentCellValue == 0) {
-            // Correct value in empty cell - gain a point
-            currentChallenge.getPlayers_scores().put(playerNickname, currentScore + 1);
-            currentChallenge.getSudoku_board().getSudoku_sfida()[x][y] = value;
-            return 1;
-        } else {
-            // Correct value but cell already filled - no points
-            return 0;
+    /**
+     * Room state from the host when hosting is on, null otherwise or if no peer hosts the room.
+     * The exchange with the host is a blocking call and runs on the async pool.
+     */
+    private CompletableFuture<Challenge> hostedState(RoomRequest request) {
+        if (!roomHosting) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return Futures.supply(() -> requestRoomState(request));
+    }
+
+    /**
+     * Owner of a room as last seen by this peer: current room, then lobby, then the DHT
+     */
+    private String knownOwner(String gameCode) throws Exception {
+        Challenge challenge = currentChallenge;
+        if (challenge != null && gameCode.equals(challenge.getCodice_partita())) {
+            return challenge.getOwner();
         }
+        ChallengeSummary summary = challenges.get(gameCode);
+        if (summary != null) {
+            return summary.getOwner();
+        }
+        Challenge room = rooms.read(gameCode);
+        return room == null ? null : room.getOwner();
     }
 
     /**
-     * Checks if the Sudoku is complete
+     * Applies a request on a hosted room and sends the change to the other participants.
+     * Changes are applied and queued under the host's lock, so they leave in order.
+     * A scoring move is stored in the DHT before it is answered, so a takeover never
+     * loses a move its player was told about.
+     * @return the answer for the requester: the move for MOVE, the room state otherwise
      */
-    private boolean isSudokuComplete() {
-        return currentChallenge.getSudoku_board()
-                .contaZeri(currentChallenge.getSudoku_board().getSudoku_sfida()) == 0;
+    private Message serveRoomRequest(RoomHost host, RoomRequest request) throws Exception {
+        String requester = request.getNickname();
+        MoveApplied move = null;
+        Challenge snapshot;
+        boolean closing;
+
+        if (request.getKind() == RoomRequest.Kind.MOVE && !host.claim(request.getX(), request.getY(), request.getValue())) {
+            // Another player filled the cell first
+            MoveApplied rejected = host.rejected(requester, request.getX(), request.getY(), request.getValue());
+            return new Message(MessageType.MOVE, currentPlayer.getNickname(), rejected);
+        }
+
+        synchronized (host) {
+            boolean changed;
+            switch (request.getKind()) {
+                case JOIN:
+                    changed = host.join(requester);
+                    break;
+                case START:
+                    changed = host.start();
+                    break;
+                case QUIT:
+                    changed = host.quit(requester);
+                    break;
+                case MOVE:
+                    move = host.move(requester, request.getX(), request.getY(), request.getValue());
+                    changed = move.getScoreDelta() != 0;
+                    break;
+                default:
+                    changed = false;
+            }
+
+            snapshot = host.snapshot();
+            closing = changed && host.isClosed();
+            if (changed && !closing) {
+                publishRoomUpdate(snapshot, move, requester);
+            }
+        }
+
+        if (closing) {
+            // Only the host's own quit closes it. The final state is stored before the
+            // others hear of it, so the new owner starts hosting from it.
+            hostedRooms.remove(host.getCodice_partita());
+            host.checkpoint();
+            publishRoomUpdate(snapshot, move, requester);
+        }
+        if (requester.equals(currentPlayer.getNickname())) {
+            updateChallenge(snapshot);
+        }
+
+        MessageType type = move != null ? MessageType.MOVE : MessageType.CHALLENGE;
+        return new Message(type, currentPlayer.getNickname(), move != null ? move : snapshot);
     }
 
     /**
-     * Handles the completion of the Sudoku game
+     * Sends a change made by the host: the move, or the whole room for other changes and
+     * for the move that ended the game. The requester already has the answer and only
+     * gets the final room. The host's own view is updated like any participant's.
      */
-    private void handleSudokuCompletion() throws Exception {
-        currentChallenge.setFull(true);
-        
-        Map.Entry<String, Integer> winner = findWinner();
-        currentChallenge.setTerminated(true);
-        currentChallenge.setWinner(new Pair<>(winner.getKey(), winner.getValue()));
-        
-        challenges.remove(findCurrentChallengeIndex());
-        currentChallenge.getSudoku_board()
-                .printSudoku(currentChallenge.getSudoku_board().getSudoku_sfida());
-        
-        removeFromChallengeList();
+    private void publishRoomUpdate(Challenge snapshot, MoveApplied move, String requester) {
+        String nickname = currentPlayer.getNickname();
+        boolean completed = move != null && snapshot.isTerminated();
+        Message update = move != null && !completed
+                ? new Message(MessageType.MOVE, nickname, move)
+                : new Message(MessageType.CHALLENGE, nickname, snapshot);
+
+        List<String> recipients = new ArrayList<>();
+        for (String player : snapshot.getPlayers_scores().keySet()) {
+            if (completed || !player.equals(requester)) {
+                recipients.add(player);
+            }
+        }
+        if (!requester.equals(nickname)) {
+            dispatcher.deliver(update);
+        }
+
+        byte[] payload = Codec.encodeMessage(update);
+        hostBroadcasts.execute(() -> {
+            try {
+                fanOut.send(addressesOf(recipients), payload);
+                if (completed) {
+                    removeFromLobby(snapshot.getCodice_partita());
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
     }
 
     /**
-     * Finds the winner with the highest score
+     * Replaces a host that cannot be reached: this peer becomes owner, starting from the
+     * freshest state it has, and serves the request itself. Changes the old host had
+     * neither stored nor sent to this peer are lost.
+     * @return null if this peer is not in the room or another peer took over first
      */
-    private Map.Entry<String, Integer> findWinner() {
-        return currentChallenge.getPlayers_scores()
-                .entrySet()
-                .stream()
-                .max(Map.Entry.comparingByValue())
-                .orElse(null);
+    private Message takeOver(RoomRequest request, String owner) throws Exception {
+        String gameCode = request.getCodice_partita();
+        String nickname = currentPlayer.getNickname();
+
+        Challenge stored = rooms.read(gameCode);
+        if (stored == null || !owner.equals(stored.getOwner()) || !stored.getPlayers_scores().containsKey(nickname)) {
+            return null;
+        }
+
+        Challenge local = currentChallenge;
+        Challenge room = local != null && gameCode.equals(local.getCodice_partita()) && local.getVersion() > stored.getVersion()
+                ? Codec.decodeChallenge(Codec.encodeChallenge(local))
+                : stored;
+        room.setOwner(nickname);
+        room.setVersion(room.getVersion() + 1);
+        if (!rooms.checkpoint(room, stored.getVersion())) {
+            return null;
+        }
+
+        startHosting(room);
+        publishRoomUpdate(room, null, nickname);
+        updateChallenge(room);
+        return serveRoomRequest(hostedRooms.get(gameCode), request);
     }
 
     /**
-     * Finds the index of the current challenge in the challenges list
+     * Stores the hosted rooms that changed since their last checkpoint
      */
-    private int findCurrentChallengeIndex() {
-        for (int i = 0; i < challenges.size(); i++) {
-            if (challenges.get(i).getCodice_partita().equals(currentChallenge.getCodice_partita())) {
-                return i;
+    private void checkpointRooms() {
+        for (RoomHost host : hostedRooms.values()) {
+            try {
+                if (!host.checkpoint()) {
+                    // Another peer wrote the room, so it took over: this peer stops hosting
+                    hostedRooms.remove(host.getCodice_partita());
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
             }
         }
-        return -1;
     }
 
     /**
-     * Finds the index of a player by nickname
+     * Finds the address of a player by nickname: peer index first, then the
+     * player's own registry entry. Null if the player is not registered.
      */
-    private int findPlayerIndex(String nickname) {
-        for (int i = 0; i < players.size(); i++) {
-            if (players.get(i).getNickname().equals(nickname)) {
-                return i;
+    private PeerAddress findPeerAddress(String nickname) throws Exception {
+        PeerAddress address = peerIndex.get(nickname);
+
+        if (address == null) {
+            Data data = registry.get(nickname);
+            if (data == null) {
+                return null;
             }
+            Player player = Codec.playerFrom(data);
+            peerIndex.put(player);
+            address = player.getPeerAdd();
         }
-        return -1;
+        return address;
     }
 
     public boolean leaveNetwork() {
         try {
-            FutureGet futureGet = dht.get(PLAYERS_KEY).start().awaitUninterruptibly();
-
-            if (futureGet.isSuccess()) {
-                if (!futureGet.isEmpty()) {
-                    players = (ArrayList<Player>) futureGet.dataMap().values().iterator().next().object();
-                    
-                    if (players.size() == 1) {
-                        players.clear();
-                    } else {
-                        players.remove(findPlayerIndex(currentPlayer.getNickname()));
-                    }
-                    
-                    dht.put(PLAYERS_KEY).data(new Data(players)).start().awaitUninterruptibly();
-                }
+            for (String topic : s_topics) {
+                unsubscribe(topic);
+            }
+
+            if (registry.remove(currentPlayer.getNickname())) {
+                players.removeIf(player -> player.getNickname().equals(currentPlayer.getNickname()));
+                peerIndex.remove(currentPlayer.getNickname());
                 return true;
             }
         } catch (Exception e) {
@@ -672,18 +1319,31 @@ public class ClientImpl implements Client {
     }
 
     public void shutdown() {
-        dht.peer().announceShutdown().start().awaitUninterruptibly();
+        PuzzleCatalog.removeResolver(puzzleResolver);
+        checkpoints.shutdownNow();
+        checkpointRooms();
+        hostBroadcasts.shutdown();
+        dispatcher.shutdown();
+        try {
+            CallPolicy.of(CallPolicy.Type.MEMBERSHIP).call(() -> dht.peer().announceShutdown().start()).join();
+        } catch (RuntimeException e) {
+            // Nobody heard the announcement, the neighbours notice the peer is gone on their own
+            e.printStackTrace();
+        }
 
         challenges.clear();
+        removedRooms.clear();
+        hostedRooms.clear();
         players.clear();
+        peerIndex.clear();
         currentChallenge = null;
         currentPlayer = null;
         peer.shutdown();
     }
 
     // Getters and Setters
-    public ArrayList<Challenge> getChallenges() {
-        return challenges;
+    public ArrayList<ChallengeSummary> getChallenges() {
+        return new ArrayList<>(challenges.values());
     }
 
     public ArrayList<Player> getPlayers() {
@@ -692,10 +1352,26 @@ public class ClientImpl implements Client {
 
     public void setPlayers(ArrayList<Player> players) {
         this.players = players;
+        peerIndex.reset(players);
+    }
+
+    public void setChallenges(ArrayList<ChallengeSummary> challenges) {
+        this.challenges.clear();
+        for (ChallengeSummary summary : challenges) {
+            this.challenges.put(summary.getCodice_partita(), summary);
+        }
     }
 
-    public void setChallenges(ArrayList<Challenge> challenges) {
-        this.challenges = challenges;
+    /**
+     * Whether room changes go to the owner's in-memory host, from the
+     * {@value #ROOM_HOST_PROPERTY} system property unless set here
+     */
+    public boolean isRoomHosting() {
+        return roomHosting;
+    }
+
+    public void setRoomHosting(boolean roomHosting) {
+        this.roomHosting = roomHosting;
     }
 
     public void setChallenge(Challenge challenge) {
@@ -709,4 +1385,40 @@ public class ClientImpl implements Client {
     public Player getPlayer() {
         return currentPlayer;
     }
+
+    /**
+     * Per-recipient delivery latency and failures of direct messages sent by this peer
+     */
+    public Map<String, FanOutDispatcher.RecipientStats> getDeliveryStats() {
+        return fanOut.getStats();
+    }
+
+    /**
+     * Lobby reads served from memory, see {@link LocalCache}
+     */
+    public LocalCache<String, List<ChallengeSummary>> getLobbyCache() {
+        return lobbyCache;
+    }
+
+    public LocalCache<String, Challenge> getRoomCache() {
+        return roomCache;
+    }
+
+    public LocalCache<String, ArrayList<Player>> getPlayerCache() {
+        return playerCache;
+    }
+
+    /**
+     * Player addresses used by the send paths, with lookup and eviction counts
+     */
+    public PeerIndex getPeerIndex() {
+        return peerIndex;
+    }
+
+    /**
+     * Hedged reads and how often the hedge answered first
+     */
+    public HedgedReader getReader() {
+        return reader;
+    }
 }
\ No newline at end of file
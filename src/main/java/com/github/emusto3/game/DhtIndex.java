@@ -0,0 +1,169 @@
+package com.github.emusto3.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import net.tomp2p.dht.FutureGet;
+import net.tomp2p.dht.PeerDHT;
+import net.tomp2p.peers.Number160;
+import net.tomp2p.storage.Data;
+
+/**
+ * Keyed index spread over a fixed number of DHT buckets.
+ *
+ * Each entry is stored under the location key of its bucket, hash(name + "-" + bucket),
+ * with the content key hash(key). Adding, updating or removing an entry only touches
+ * that entry, and the buckets live on different responsible peers, so no single
+ * record holds (or serializes) the whole index.
+ *
+ * Every operation has an asynchronous form; the blocking one waits for it.
+ * Calls run under the {@link CallPolicy} of their type, so none waits past its deadline,
+ * and reads go through a {@link HedgedReader}.
+ */
+public class DhtIndex {
+
+    public static final int DEFAULT_BUCKETS = 16;
+
+    private final PeerDHT dht;
+    private final HedgedReader reader;
+    private final Number160[] buckets;
+
+    public DhtIndex(PeerDHT dht, String name, HedgedReader reader) {
+        this(dht, name, DEFAULT_BUCKETS, reader);
+    }
+
+    public DhtIndex(PeerDHT dht, String name, int bucketCount, HedgedReader reader) {
+        this.dht = dht;
+        this.reader = reader;
+        this.buckets = new Number160[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = Number160.createHash(name + "-" + i);
+        }
+    }
+
+    /**
+     * Location key of the bucket holding the entry. String.hashCode is fixed by the
+     * language spec, so every peer maps a key to the same bucket.
+     */
+    public Number160 bucketKey(String key) {
+        return buckets[Math.floorMod(key.hashCode(), buckets.length)];
+    }
+
+    public Number160 contentKey(String key) {
+        return Number160.createHash(key);
+    }
+
+    public boolean put(String key, Data data) {
+        return putAsync(key, data).join();
+    }
+
+    public CompletableFuture<Boolean> putAsync(String key, Data data) {
+        return CallPolicy.of(CallPolicy.Type.WRITE).succeeded(() -> dht.put(bucketKey(key))
+                .data(contentKey(key), data)
+                .start());
+    }
+
+    /**
+     * Adds the entry only if the key is not taken yet
+     * @return false if another entry already holds the key
+     */
+    public boolean putIfAbsent(String key, Data data) {
+        return putIfAbsentAsync(key, data).join();
+    }
+
+    public CompletableFuture<Boolean> putIfAbsentAsync(String key, Data data) {
+        return CallPolicy.of(CallPolicy.Type.CONDITIONAL_WRITE).succeeded(() -> dht.put(bucketKey(key))
+                .data(contentKey(key), data)
+                .putIfAbsent()
+                .start());
+    }
+
+    /**
+     * Reads a single entry, null if it is not in the index
+     */
+    public Data get(String key) {
+        return getAsync(key).join();
+    }
+
+    public CompletableFuture<Data> getAsync(String key) {
+        return reader.read(configuration -> dht.get(bucketKey(key))
+                .contentKey(contentKey(key))
+                .requestP2PConfiguration(configuration)
+                .start())
+                .thenApply(futureGet -> futureGet.isSuccess() && !futureGet.isEmpty() ? futureGet.data() : null);
+    }
+
+    public boolean contains(String key) {
+        return get(key) != null;
+    }
+
+    public CompletableFuture<Boolean> containsAsync(String key) {
+        return getAsync(key).thenApply(data -> data != null);
+    }
+
+    public boolean remove(String key) {
+        return removeAsync(key).join();
+    }
+
+    public CompletableFuture<Boolean> removeAsync(String key) {
+        return CallPolicy.of(CallPolicy.Type.WRITE).succeeded(() -> dht.remove(bucketKey(key))
+                .contentKey(contentKey(key))
+                .start());
+    }
+
+    /**
+     * Reads every entry. All bucket requests are started before waiting on any of them.
+     * A bucket that cannot be read does not fail the listing, it makes it partial.
+     */
+    public Listing list() {
+        return listAsync().join();
+    }
+
+    public CompletableFuture<Listing> listAsync() {
+        List<CompletableFuture<FutureGet>> futures = new ArrayList<>();
+        for (Number160 bucket : buckets) {
+            futures.add(reader.read(configuration -> dht.get(bucket)
+                    .all()
+                    .requestP2PConfiguration(configuration)
+                    .start())
+                    .handle((futureGet, failure) -> failure == null && futureGet.isSuccess() ? futureGet : null));
+        }
+
+        return Futures.all(futures).thenApply(done -> {
+            List<Data> entries = new ArrayList<>();
+            boolean complete = true;
+            for (FutureGet futureGet : done) {
+                if (futureGet == null) {
+                    complete = false;
+                } else if (!futureGet.isEmpty()) {
+                    entries.addAll(futureGet.dataMap().values());
+                }
+            }
+            return new Listing(entries, complete);
+        });
+    }
+
+    /**
+     * Entries read by {@link #listAsync}. A partial listing misses the buckets that could
+     * not be read: an entry absent from it may still be in the index.
+     */
+    public static class Listing {
+
+        private final List<Data> entries;
+        private final boolean complete;
+
+        public Listing(List<Data> entries, boolean complete) {
+            this.entries = entries;
+            this.complete = complete;
+        }
+
+        public List<Data> getEntries() {
+            return entries;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
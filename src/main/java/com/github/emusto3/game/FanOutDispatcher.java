@@ -0,0 +1,215 @@
+package com.github.emusto3.game;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import net.tomp2p.futures.FutureDirect;
+import net.tomp2p.p2p.Peer;
+import net.tomp2p.peers.PeerAddress;
+
+/**
+ * Sends one payload to many peers concurrently.
+ *
+ * At most {@code parallelism} sends are in flight at once, the others wait in a queue
+ * and are started as earlier sends complete. Each send is cancelled
+ * when it passes its own deadline, set by the {@link CallPolicy.Type#DIRECT} policy,
+ * so a dead peer costs one timeout instead of stalling everyone queued behind it. Failed recipients are returned to the caller
+ * rather than thrown, and their addresses evicted from the {@link PeerIndex}.
+ * Delivery latency is tracked per recipient.
+ */
+public class FanOutDispatcher {
+
+    public static final String PARALLELISM_PROPERTY = "sudoku.fanout.parallelism";
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private final Peer peer;
+    private final Semaphore permits;
+    // Sends waiting for a permit
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final CallPolicy policy;
+    private final PeerIndex peers;
+
+    private final Map<String, RecipientStats> stats = new ConcurrentHashMap<>();
+
+    public FanOutDispatcher(Peer peer, PeerIndex peers) {
+        this(peer, configuredParallelism(), CallPolicy.of(CallPolicy.Type.DIRECT), peers);
+    }
+
+    public FanOutDispatcher(Peer peer, int parallelism, CallPolicy policy, PeerIndex peers) {
+        this.peer = peer;
+        this.permits = new Semaphore(parallelism);
+        this.policy = policy;
+        this.peers = peers;
+    }
+
+    /**
+     * Sends in flight at once, from the {@value #PARALLELISM_PROPERTY} system property
+     */
+    public static int configuredParallelism() {
+        return Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, DEFAULT_PARALLELISM));
+    }
+
+    /**
+     * Sends the payload to every recipient and waits until each send has completed,
+     * failed or passed its deadline.
+     * @param recipients nickname to address
+     * @return nicknames the payload could not be delivered to
+     */
+    public List<String> send(Map<String, PeerAddress> recipients, Object payload) {
+        return send(recipients, nickname -> payload);
+    }
+
+    /**
+     * Same as {@link #send(Map, Object)}, with a payload chosen per recipient
+     */
+    public List<String> send(Map<String, PeerAddress> recipients, Function<String, Object> payloads) {
+        return sendAsync(recipients, payloads).join();
+    }
+
+    public CompletableFuture<List<String>> sendAsync(Map<String, PeerAddress> recipients, Object payload) {
+        return sendAsync(recipients, nickname -> payload);
+    }
+
+    /**
+     * Starts the sends and completes once each has completed, failed or passed its
+     * deadline. Never blocks the caller: sends over the parallelism cap are queued.
+     * @return nicknames the payload could not be delivered to
+     */
+    public CompletableFuture<List<String>> sendAsync(Map<String, PeerAddress> recipients, Function<String, Object> payloads) {
+        List<String> failed = new CopyOnWriteArrayList<>();
+        CompletableFuture<List<String>> done = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(recipients.size());
+        if (recipients.isEmpty()) {
+            done.complete(failed);
+        }
+
+        for (Map.Entry<String, PeerAddress> recipient : recipients.entrySet()) {
+            String nickname = recipient.getKey();
+            PeerAddress address = recipient.getValue();
+
+            waiting.add(() -> {
+                long start = System.nanoTime();
+                CompletableFuture<FutureDirect> sent;
+                try {
+                    Object payload = payloads.apply(nickname);
+                    sent = policy.call(() -> peer.sendDirect(address)
+                            .connectionTimeoutTCPMillis(policy.getTimeoutMillis())
+                            .object(payload)
+                            .start());
+                } catch (RuntimeException e) {
+                    // Nothing was sent, the address is not to blame
+                    e.printStackTrace();
+                    failed.add(nickname);
+                    finish(pending, done, failed);
+                    return;
+                }
+
+                sent.whenComplete((future, error) -> {
+                    try {
+                        boolean success = future != null && future.isSuccess();
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        statsFor(nickname).record(millis, success);
+                        if (!success) {
+                            failed.add(nickname);
+                            peers.evict(nickname, address);
+                        }
+                    } finally {
+                        finish(pending, done, failed);
+                    }
+                });
+            });
+        }
+        drain();
+        return done;
+    }
+
+    /**
+     * Counts one send as done and hands its permit to the next waiting send
+     */
+    private void finish(AtomicInteger pending, CompletableFuture<List<String>> done, List<String> failed) {
+        if (pending.decrementAndGet() == 0) {
+            done.complete(failed);
+        }
+        permits.release();
+        drain();
+    }
+
+    /**
+     * Starts waiting sends while permits are free
+     */
+    private void drain() {
+        while (!waiting.isEmpty() && permits.tryAcquire()) {
+            Runnable send = waiting.poll();
+            if (send == null) {
+                permits.release();
+            } else {
+                send.run();
+            }
+        }
+    }
+
+    private RecipientStats statsFor(String nickname) {
+        return stats.computeIfAbsent(nickname, key -> new RecipientStats());
+    }
+
+    public RecipientStats getStats(String nickname) {
+        return stats.get(nickname);
+    }
+
+    public Map<String, RecipientStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Delivery metrics for one recipient
+     */
+    public static class RecipientStats {
+
+        private final AtomicLong sends = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalMillis = new AtomicLong();
+        private final AtomicLong maxMillis = new AtomicLong();
+        private volatile long lastMillis;
+
+        void record(long millis, boolean success) {
+            sends.incrementAndGet();
+            if (!success) {
+                failures.incrementAndGet();
+            }
+            totalMillis.addAndGet(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+            lastMillis = millis;
+        }
+
+        public long getSends() {
+            return sends.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getLastMillis() {
+            return lastMillis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis.get();
+        }
+
+        public double getAverageMillis() {
+            long count = sends.get();
+            return count == 0 ? 0 : (double) totalMillis.get() / count;
+        }
+    }
+}
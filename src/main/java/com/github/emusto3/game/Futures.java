@@ -0,0 +1,151 @@
+package com.github.emusto3.game;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import net.tomp2p.futures.BaseFuture;
+import net.tomp2p.futures.BaseFutureAdapter;
+
+/**
+ * Bridges TomP2P futures to CompletableFuture.
+ *
+ * TomP2P completes its futures on its I/O threads, where nothing may block. The
+ * CompletableFutures made here are completed on a pool of their own instead, so the
+ * stages chained on them are free to decode, lock or start further requests. The pool
+ * grows when stages block, so a blocking step never starves the completions it waits for.
+ */
+public final class Futures {
+
+    private static final AtomicInteger threads = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "async-client-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "async-client-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Futures() {
+    }
+
+    /**
+     * Step of a chain that may throw, see {@link #unchecked}
+     */
+    public interface Step<T, R> {
+        R apply(T value) throws Exception;
+    }
+
+    public static Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Completes with the TomP2P future once it is done, successful or not: the caller checks isSuccess
+     */
+    public static <F extends BaseFuture> CompletableFuture<F> of(F future) {
+        CompletableFuture<F> completable = new CompletableFuture<>();
+        future.addListener(new BaseFutureAdapter<F>() {
+            @Override
+            public void operationComplete(F done) {
+                executor.execute(() -> completable.complete(done));
+            }
+
+            @Override
+            public void exceptionCaught(Throwable t) {
+                executor.execute(() -> completable.completeExceptionally(t));
+            }
+        });
+        return completable;
+    }
+
+    /**
+     * Whether the TomP2P future succeeded
+     */
+    public static CompletableFuture<Boolean> succeeded(BaseFuture future) {
+        return of(future).thenApply(BaseFuture::isSuccess);
+    }
+
+    /**
+     * Runs a blocking call on the pool, for the steps that have no asynchronous form
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> call) {
+        Step<Void, T> step = ignored -> call.call();
+        return CompletableFuture.supplyAsync(() -> unchecked(step).apply(null), executor);
+    }
+
+    /**
+     * Completes after the delay, without holding a thread meanwhile
+     */
+    public static CompletableFuture<Void> delay(long millis) {
+        CompletableFuture<Void> delay = new CompletableFuture<>();
+        timer.schedule(() -> executor.execute(() -> delay.complete(null)), millis, TimeUnit.MILLISECONDS);
+        return delay;
+    }
+
+    /**
+     * Runs the task on the timer thread after the delay, for deadlines: the task must not block
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long millis) {
+        return timer.schedule(task, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(t);
+        return failed;
+    }
+
+    /**
+     * Completes with every result, in order, once all the futures have completed
+     */
+    public static <T> CompletableFuture<List<T>> all(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    /**
+     * Wraps a step that throws checked exceptions, which then fail the chain
+     */
+    public static <T, R> Function<T, R> unchecked(Step<T, R> step) {
+        return value -> {
+            try {
+                return step.apply(value);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        };
+    }
+
+    /**
+     * Waits for the result, for the synchronous API. The exception that failed the
+     * chain is thrown as it is, not wrapped.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+}
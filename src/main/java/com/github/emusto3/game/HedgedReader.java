@@ -0,0 +1,169 @@
+package com.github.emusto3.game;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import net.tomp2p.dht.FutureGet;
+import net.tomp2p.p2p.RequestP2PConfiguration;
+
+/**
+ * DHT gets with an optional hedge.
+ *
+ * A get waits for answers from three replicas, so one slow replica holds up the whole
+ * read. When hedging is on and the get has not completed within the recent
+ * {@code percentile} of get latencies, a second get is sent that asks three replicas in
+ * parallel and completes on the first answer. The read completes with whichever
+ * succeeds first.
+ *
+ * Latencies are sampled whether hedging is on or not, so the delay is ready when it is
+ * switched on.
+ */
+public class HedgedReader {
+
+    public static final String HEDGE_PROPERTY = "sudoku.read.hedge";
+    public static final String PERCENTILE_PROPERTY = "sudoku.read.hedge.percentile";
+    public static final int DEFAULT_PERCENTILE = 95;
+
+    // TomP2P's own setting for gets: three answers, up to five failures, one request at a time
+    static final RequestP2PConfiguration PRIMARY = new RequestP2PConfiguration(3, 5, 0);
+    // First answer wins, three requests in flight
+    static final RequestP2PConfiguration HEDGE = new RequestP2PConfiguration(1, 5, 2);
+
+    private static final int SAMPLES = 256;
+    // Delay used until enough latencies have been sampled
+    private static final long INITIAL_DELAY_MILLIS = 50;
+    private static final long MIN_DELAY_MILLIS = 5;
+
+    private volatile boolean enabled;
+    private final int percentile;
+
+    private final long[] samples = new long[SAMPLES];
+    private int sampled = 0;
+    private volatile long delayMillis = INITIAL_DELAY_MILLIS;
+
+    // Metrics
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    public HedgedReader() {
+        this(Boolean.getBoolean(HEDGE_PROPERTY), Integer.getInteger(PERCENTILE_PROPERTY, DEFAULT_PERCENTILE));
+    }
+
+    public HedgedReader(boolean enabled, int percentile) {
+        this.enabled = enabled;
+        this.percentile = Math.max(1, Math.min(99, percentile));
+    }
+
+    /**
+     * Runs the get under the {@link CallPolicy.Type#READ} policy, hedged when enabled
+     * @param get starts a get with the given request configuration
+     * @return the first successful get, or the primary one if none succeeded
+     */
+    public CompletableFuture<FutureGet> read(Function<RequestP2PConfiguration, FutureGet> get) {
+        CallPolicy policy = CallPolicy.of(CallPolicy.Type.READ);
+        return hedge(() -> policy.call(() -> get.apply(PRIMARY)), () -> policy.call(() -> get.apply(HEDGE)), FutureGet::isSuccess);
+    }
+
+    /**
+     * Starts a read, and the second one if the first has not completed within the
+     * hedge delay. Its latency is sampled for the delay.
+     * @param succeeded whether a completed read has an answer
+     * @return the first successful read, or the first one if none succeeded
+     */
+    public <T> CompletableFuture<T> hedge(Supplier<CompletableFuture<T>> first, Supplier<CompletableFuture<T>> second,
+            Predicate<T> succeeded) {
+        reads.incrementAndGet();
+        long start = System.nanoTime();
+
+        CompletableFuture<T> primary = first.get();
+        primary.whenComplete((done, failure) -> record((System.nanoTime() - start) / 1_000_000));
+        if (!enabled) {
+            return primary;
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+
+        primary.whenComplete((done, failure) -> settle(result, primary, hedge.get(), done, false, succeeded));
+        Futures.delay(delayMillis).thenRun(() -> {
+            if (primary.isDone()) {
+                return;
+            }
+            hedges.incrementAndGet();
+            CompletableFuture<T> backup = second.get();
+            hedge.set(backup);
+            backup.whenComplete((done, failure) -> settle(result, primary, backup, done, true, succeeded));
+        });
+        return result;
+    }
+
+    /**
+     * Completes the read with the first success. A failure only completes it once
+     * the other read, if one was sent, has failed as well.
+     */
+    private <T> void settle(CompletableFuture<T> result, CompletableFuture<T> primary,
+            CompletableFuture<T> hedge, T done, boolean fromHedge, Predicate<T> succeeded) {
+        if (done != null && succeeded.test(done)) {
+            if (result.complete(done) && fromHedge) {
+                hedgeWins.incrementAndGet();
+            }
+            return;
+        }
+        if (primary.isDone() && (hedge == null || hedge.isDone())) {
+            primary.whenComplete((first, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(first);
+                }
+            });
+        }
+    }
+
+    private synchronized void record(long millis) {
+        samples[sampled % SAMPLES] = millis;
+        sampled++;
+        // Recomputed every few samples, not on every read
+        if (sampled >= SAMPLES / 8 && sampled % 16 == 0) {
+            long[] sorted = Arrays.copyOf(samples, Math.min(sampled, SAMPLES));
+            Arrays.sort(sorted);
+            delayMillis = Math.max(MIN_DELAY_MILLIS, sorted[(sorted.length - 1) * percentile / 100]);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Time a get may take before it is hedged
+     */
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * Reads answered by the hedge before the first get
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+}
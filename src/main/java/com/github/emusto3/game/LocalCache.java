@@ -0,0 +1,139 @@
+package com.github.emusto3.game;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copies of DHT reads, served for {@code ttlMillis} after they were stored.
+ *
+ * Entries are refreshed by the reads themselves and by incoming messages that carry
+ * newer state, and dropped when a message shows the copy is out of date. The TTL
+ * bounds how stale a copy can get when such a message is lost.
+ *
+ * An expired entry is dropped when it is next asked for. Entries nobody asks for
+ * again are swept by a put at most once per TTL, so a put does not scan the cache.
+ */
+public class LocalCache<K, V> {
+
+    public static final String TTL_PROPERTY = "sudoku.cache.ttl";
+    public static final long DEFAULT_TTL_MILLIS = 2000;
+
+    private final long ttlMillis;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.currentTimeMillis());
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong servedAgeMillis = new AtomicLong();
+    private final AtomicLong maxServedAgeMillis = new AtomicLong();
+
+    /**
+     * TTL from the {@value #TTL_PROPERTY} system property, 0 turns the cache off
+     */
+    public static long configuredTtl() {
+        return Long.getLong(TTL_PROPERTY, DEFAULT_TTL_MILLIS);
+    }
+
+    public LocalCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * The stored value while it is fresh, null on a miss
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        long age = entry == null ? 0 : System.currentTimeMillis() - entry.stored;
+
+        if (entry == null || age >= ttlMillis) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        servedAgeMillis.addAndGet(age);
+        maxServedAgeMillis.accumulateAndGet(age, Math::max);
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.put(key, new Entry<>(value, now));
+
+        long last = lastSweep.get();
+        if (now - last >= ttlMillis && lastSweep.compareAndSet(last, now)) {
+            entries.values().removeIf(entry -> now - entry.stored >= ttlMillis);
+        }
+    }
+
+    public void invalidate(K key) {
+        if (entries.remove(key) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * Entries dropped because a message showed them out of date
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Average age of the copies served, how stale a hit is on average
+     */
+    public double getAverageStalenessMillis() {
+        long count = hits.get();
+        return count == 0 ? 0 : (double) servedAgeMillis.get() / count;
+    }
+
+    public long getMaxStalenessMillis() {
+        return maxServedAgeMillis.get();
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long stored;
+
+        Entry(V value, long stored) {
+            this.value = value;
+            this.stored = stored;
+        }
+    }
+}
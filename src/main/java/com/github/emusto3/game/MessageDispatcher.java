@@ -0,0 +1,123 @@
+package com.github.emusto3.game;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.github.emusto3.beans.Message;
+import com.github.emusto3.beans.MessageType;
+import com.github.emusto3.codec.Codec;
+import com.github.emusto3.interfaces.MessageHandler;
+import com.github.emusto3.interfaces.RequestHandler;
+
+import net.tomp2p.peers.PeerAddress;
+import net.tomp2p.rpc.ObjectDataReply;
+
+/**
+ * Routes incoming direct messages to the handler registered for their type.
+ *
+ * The TomP2P I/O thread only hands the raw payload over and acknowledges it;
+ * decoding and handling run on a single dispatch thread, so handlers see
+ * messages in arrival order and never run concurrently with each other.
+ * Requests, whose sender waits for an answer, run on a request thread of their own,
+ * so a slow request does not hold up the other messages. TomP2P sends the reply from
+ * the I/O thread, which waits for the handler's return value up to the
+ * {@link CallPolicy.Type#DIRECT} deadline: past it the sender has given up.
+ */
+public class MessageDispatcher implements ObjectDataReply {
+
+    public static final String ACK = "success";
+
+    private final Map<MessageType, MessageHandler> handlers = new EnumMap<>(MessageType.class);
+    private final Map<MessageType, RequestHandler> requestHandlers = new EnumMap<>(MessageType.class);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "message-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService requests = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "request-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Registers the handler for a message type, before the dispatcher is installed on the peer
+     */
+    public MessageDispatcher register(MessageType type, MessageHandler handler) {
+        handlers.put(type, handler);
+        return this;
+    }
+
+    /**
+     * Registers the handler answering a request type, before the dispatcher is installed on the peer
+     */
+    public MessageDispatcher registerRequest(MessageType type, RequestHandler handler) {
+        requestHandlers.put(type, handler);
+        return this;
+    }
+
+    @Override
+    public Object reply(PeerAddress sender, Object request) {
+        if (!(request instanceof byte[])) {
+            return ACK;
+        }
+
+        byte[] payload = (byte[]) request;
+        MessageType type = Codec.messageType(payload);
+        RequestHandler requestHandler = type == null ? null : requestHandlers.get(type);
+        if (requestHandler != null) {
+            return answer(sender, payload, requestHandler);
+        }
+
+        executor.execute(() -> dispatch(sender, payload));
+        return ACK;
+    }
+
+    /**
+     * Hands a message produced by this peer to its handler, in order with the received ones
+     */
+    public void deliver(Message message) {
+        executor.execute(() -> handle(null, message));
+    }
+
+    private Object answer(PeerAddress sender, byte[] payload, RequestHandler handler) {
+        Future<Object> answer = requests.submit(() -> handler.handle(sender, Codec.decodeMessage(payload)));
+        try {
+            return answer.get(CallPolicy.of(CallPolicy.Type.DIRECT).getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Still handled, only the reply is dropped
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private void dispatch(PeerAddress sender, byte[] payload) {
+        try {
+            handle(sender, Codec.decodeMessage(payload));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void handle(PeerAddress sender, Message message) {
+        try {
+            MessageHandler handler = handlers.get(message.getType());
+            if (handler != null) {
+                handler.handle(sender, message);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        requests.shutdownNow();
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.emusto3.game;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.emusto3.beans.Player;
+
+import net.tomp2p.peers.PeerAddress;
+
+/**
+ * Address of each known player by nickname, for the send paths.
+ *
+ * Fed by the registry reads, by this player's own registration, by the players listed
+ * in lobby events and by the senders of direct messages. An address a send could not
+ * reach is evicted, so the next lookup reads the player's registry entry again.
+ */
+public class PeerIndex {
+
+    private final Map<String, PeerAddress> addresses = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Address of the player, null if not known here
+     */
+    public PeerAddress get(String nickname) {
+        lookups.incrementAndGet();
+        PeerAddress address = addresses.get(nickname);
+        if (address == null) {
+            misses.incrementAndGet();
+        }
+        return address;
+    }
+
+    public boolean contains(String nickname) {
+        return addresses.containsKey(nickname);
+    }
+
+    public void put(String nickname, PeerAddress address) {
+        if (nickname != null && address != null) {
+            addresses.put(nickname, address);
+        }
+    }
+
+    public void put(Player player) {
+        put(player.getNickname(), player.getPeerAdd());
+    }
+
+    /**
+     * Takes a full registry read: its players are added, the ones missing from it dropped
+     */
+    public void reset(Collection<Player> players) {
+        Set<String> registered = new HashSet<>();
+        for (Player player : players) {
+            put(player);
+            registered.add(player.getNickname());
+        }
+        addresses.keySet().retainAll(registered);
+    }
+
+    /**
+     * Drops the address a send failed on, unless a newer one was learned meanwhile
+     */
+    public void evict(String nickname, PeerAddress address) {
+        if (addresses.remove(nickname, address)) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    public void remove(String nickname) {
+        addresses.remove(nickname);
+    }
+
+    public void clear() {
+        addresses.clear();
+    }
+
+    public int size() {
+        return addresses.size();
+    }
+
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * Lookups that had to read the registry
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Addresses dropped after a failed send
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.emusto3.game;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.github.emusto3.beans.Board;
+import com.github.emusto3.beans.Challenge;
+import com.github.emusto3.beans.MoveApplied;
+import com.github.emusto3.codec.Codec;
+
+/**
+ * Authoritative in-memory copy of a room, kept by the owner's peer.
+ *
+ * Players send their changes to the host instead of writing the room in the DHT.
+ * Changes are applied one at a time, in arrival order, each producing the next room
+ * version, so a move costs one direct message and no DHT round-trip. The DHT copy is
+ * a checkpoint written in the background, it may trail the host by a few versions.
+ * Each checkpoint is a compare-and-set on the previous one, so a peer that took the
+ * room over is noticed by the next checkpoint and this host stops.
+ *
+ * Right values claim their cell with a compare-and-set before the room lock is taken:
+ * of simultaneous placements in the same cell exactly one goes on to score, the others
+ * are turned down without waiting for the lock.
+ *
+ * When the owner quits, ownership passes to another participant and the host closes;
+ * the new owner starts its own host from the final state.
+ */
+public class RoomHost {
+
+    private final Challenge room;
+    private final RoomStore rooms;
+    private final Object checkpointLock = new Object();
+    // Value of each cell, set by the winning claim before the room is changed
+    private final AtomicIntegerArray cells = new AtomicIntegerArray(Board.CELLS);
+    // Last version stored in the DHT
+    private long checkpointed;
+    private boolean closed = false;
+
+    /**
+     * @param room latest state, already stored in the DHT
+     */
+    public RoomHost(Challenge room, RoomStore rooms) throws IOException {
+        this.room = copy(room);
+        this.rooms = rooms;
+        // Resolved now, so that moves never wait for the puzzle definition
+        this.room.getSudoku_board().getPuzzle();
+        this.checkpointed = room.getVersion();
+
+        Board board = this.room.getSudoku_board().getSfida();
+        for (int i = 0; i < Board.CELLS; i++) {
+            cells.set(i, board.get(i));
+        }
+    }
+
+    public String getCodice_partita() {
+        return room.getCodice_partita();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Copy of the current state
+     */
+    public synchronized Challenge snapshot() throws IOException {
+        return copy(room);
+    }
+
+    public synchronized boolean join(String player) {
+        if (closed || room.getPlayers_scores().containsKey(player)) {
+            return false;
+        }
+        room.getPlayers_scores().put(player, 0);
+        return bump();
+    }
+
+    public synchronized boolean start() {
+        if (closed || room.isStarted()) {
+            return false;
+        }
+        room.setStarted(true);
+        return bump();
+    }
+
+    /**
+     * Removes the player. If the owner leaves, the remaining participant with the
+     * smallest nickname becomes owner and this host closes.
+     */
+    public synchronized boolean quit(String player) {
+        if (closed || room.getPlayers_scores().remove(player) == null) {
+            return false;
+        }
+        if (room.getPlayers_scores().isEmpty()) {
+            closed = true;
+        } else if (player.equals(room.getOwner())) {
+            room.setOwner(Collections.min(room.getPlayers_scores().keySet()));
+            closed = true;
+        }
+        return bump();
+    }
+
+    /**
+     * Claims the cell for a placement, without the room lock. Wrong values claim
+     * nothing and always pass, they are scored by {@link #move}.
+     * @return false if the cell is already filled: the placement scores nothing
+     */
+    public boolean claim(int x, int y, int value) {
+        if (room.getSudoku_board().getSoluzione(x, y) != value) {
+            return true;
+        }
+        return cells.compareAndSet(Board.index(x, y), 0, value);
+    }
+
+    /**
+     * Answer to a placement that lost its cell, sequence 0 as nothing changed
+     */
+    public MoveApplied rejected(String player, int x, int y, int value) {
+        return new MoveApplied(room.getCodice_partita(), x, y, value, player, 0, 0);
+    }
+
+    /**
+     * Scores a placement, after its {@link #claim}. A move completing the board also
+     * terminates the room, as a version of its own after the move.
+     * @return the move with its sequence, a score change of 0 if nothing changed
+     */
+    public synchronized MoveApplied move(String player, int x, int y, int value) {
+        int result = 0;
+        if (!closed && !room.isTerminated() && room.getPlayers_scores().containsKey(player)) {
+            result = room.placeNumber(player, x, y, value);
+        }
+        // A claim that did not fill the cell is given back
+        cells.set(Board.index(x, y), room.getSudoku_board().getSfida().get(x, y));
+        if (result == 0) {
+            return new MoveApplied(room.getCodice_partita(), x, y, value, player, 0, room.getVersion());
+        }
+
+        bump();
+        MoveApplied move = new MoveApplied(room.getCodice_partita(), x, y, value, player, result, room.getVersion());
+        if (room.getSudoku_board().isComplete()) {
+            room.complete();
+            bump();
+        }
+        return move;
+    }
+
+    /**
+     * Stores the current state in the DHT if it changed since the last checkpoint.
+     * Checkpoints are serialized, a later one never overtakes an earlier one.
+     * @return false if the version was taken by another peer: this host is no longer
+     *         the only writer and must stop
+     */
+    public boolean checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            Challenge state;
+            long basedOn;
+            synchronized (this) {
+                if (room.getVersion() == checkpointed) {
+                    return true;
+                }
+                state = copy(room);
+                basedOn = checkpointed;
+            }
+
+            if (state.getPlayers_scores().isEmpty()) {
+                // Last player gone: the room is deleted instead of stored empty
+                rooms.remove(state.getCodice_partita());
+            } else if (!rooms.checkpoint(state, basedOn)) {
+                synchronized (this) {
+                    closed = true;
+                }
+                return false;
+            }
+
+            synchronized (this) {
+                checkpointed = state.getVersion();
+            }
+            return true;
+        }
+    }
+
+    private boolean bump() {
+        room.setVersion(room.getVersion() + 1);
+        return true;
+    }
+
+    private static Challenge copy(Challenge challenge) throws IOException {
+        return Codec.decodeChallenge(Codec.encodeChallenge(challenge));
+    }
+}
@@ -0,0 +1,206 @@
+package com.github.emusto3.game;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.emusto3.beans.Challenge;
+import com.github.emusto3.codec.Codec;
+import com.github.emusto3.exceptions.ConcurrentUpdateException;
+import com.github.emusto3.interfaces.ChallengeUpdate;
+
+import net.tomp2p.dht.PeerDHT;
+import net.tomp2p.peers.Number160;
+import net.tomp2p.storage.Data;
+
+/**
+ * Room records with compare-and-set writes.
+ *
+ * Each version of a room is stored under the room key with a TomP2P version
+ * key one past the version it is based on, and every write is a put-if-absent
+ * on that key. Of two peers that read version n and both write on top of it,
+ * only one succeeds; the other re-reads the latest version, re-applies its
+ * change and tries again, up to {@link #MAX_ATTEMPTS} times. Room hosts skip
+ * versions, so the key is taken from the version written on, not from the
+ * version being written: a host and a peer taking the room over from the same
+ * checkpoint race for the same key.
+ *
+ * Versions are never removed one by one, only with the whole room: a freed slot
+ * would let a writer based on an older version store it again and lose the
+ * update made in between. A write that timed out may still have landed: before
+ * it counts as lost, the version is read back and compared with what was written.
+ */
+public class RoomStore {
+
+    public static final int MAX_ATTEMPTS = 5;
+    private static final int BACKOFF_MILLIS = 10;
+
+    private final PeerDHT dht;
+    private final HedgedReader reader;
+
+    // Metrics
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public RoomStore(PeerDHT dht, HedgedReader reader) {
+        this.dht = dht;
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the latest version of a room, null if the room does not exist
+     */
+    public Challenge read(String gameCode) throws Exception {
+        return Futures.await(readAsync(gameCode));
+    }
+
+    public CompletableFuture<Challenge> readAsync(String gameCode) {
+        return reader.read(configuration -> dht.get(roomKey(gameCode))
+                .contentKey(Number160.ZERO)
+                .getLatest()
+                .requestP2PConfiguration(configuration)
+                .start())
+                .thenApply(Futures.unchecked(futureGet -> futureGet.isSuccess() && !futureGet.isEmpty()
+                        ? Codec.challengeFrom(futureGet.data())
+                        : null));
+    }
+
+    /**
+     * Stores a new room at its current version
+     * @return false if a room with the same code already exists
+     */
+    public boolean create(Challenge challenge) {
+        return createAsync(challenge).join();
+    }
+
+    public CompletableFuture<Boolean> createAsync(Challenge challenge) {
+        return writeAsync(challenge, null, new Number160(challenge.getVersion()));
+    }
+
+    /**
+     * Reads the latest version, applies the change and writes it as the next version.
+     * @return the stored room (or the one read, if the change had nothing to store),
+     *         null if the room does not exist
+     * @throws ConcurrentUpdateException if other peers won every attempt
+     */
+    public Challenge update(String gameCode, ChallengeUpdate change) throws Exception {
+        return Futures.await(updateAsync(gameCode, change));
+    }
+
+    /**
+     * Same as {@link #update}, the backoff between attempts holds no thread
+     */
+    public CompletableFuture<Challenge> updateAsync(String gameCode, ChallengeUpdate change) {
+        return attempt(gameCode, change, 0);
+    }
+
+    private CompletableFuture<Challenge> attempt(String gameCode, ChallengeUpdate change, int attempt) {
+        if (attempt == MAX_ATTEMPTS) {
+            exhausted.incrementAndGet();
+            return Futures.failed(new ConcurrentUpdateException(gameCode, MAX_ATTEMPTS));
+        }
+
+        return readAsync(gameCode).thenCompose(Futures.unchecked(challenge -> {
+            if (challenge == null || !change.apply(challenge)) {
+                return CompletableFuture.completedFuture(challenge);
+            }
+
+            Number160 basedOn = new Number160(challenge.getVersion());
+            challenge.setVersion(challenge.getVersion() + 1);
+            return writeAsync(challenge, basedOn, new Number160(challenge.getVersion())).thenCompose(written -> {
+                if (written) {
+                    return CompletableFuture.completedFuture(challenge);
+                }
+
+                // Another peer stored this version first
+                conflicts.incrementAndGet();
+                return Futures.delay(ThreadLocalRandom.current().nextInt(BACKOFF_MILLIS << attempt) + 1)
+                        .thenCompose(delayed -> attempt(gameCode, change, attempt + 1));
+            });
+        }));
+    }
+
+    /**
+     * Stores a version produced elsewhere, by the room host, on top of the version last stored.
+     * Versions in between may be skipped, the host only writes its latest state.
+     * @param basedOn version of the last checkpoint, the write is a compare-and-set on it
+     * @return false if another version was already stored on top of it: another peer is
+     *         writing the room
+     */
+    public boolean checkpoint(Challenge challenge, long basedOn) {
+        return writeAsync(challenge, new Number160(basedOn), new Number160(basedOn + 1)).join();
+    }
+
+    /**
+     * Removes every version of a room
+     */
+    public boolean remove(String gameCode) {
+        return removeAsync(gameCode).join();
+    }
+
+    public CompletableFuture<Boolean> removeAsync(String gameCode) {
+        return CallPolicy.of(CallPolicy.Type.WRITE).succeeded(() -> dht.remove(roomKey(gameCode))
+                .all()
+                .start());
+    }
+
+    private CompletableFuture<Boolean> writeAsync(Challenge challenge, Number160 basedOn, Number160 version) {
+        byte[] bytes = Codec.encodeChallenge(challenge);
+        Data data = new Data(bytes);
+        if (basedOn != null) {
+            data.addBasedOn(basedOn);
+        }
+        Number160 roomKey = roomKey(challenge.getCodice_partita());
+
+        return CallPolicy.of(CallPolicy.Type.CONDITIONAL_WRITE).succeeded(() -> dht.put(roomKey)
+                .data(Number160.ZERO, data, version)
+                .putIfAbsent()
+                .start())
+                .thenCompose(success -> success
+                        ? CompletableFuture.completedFuture(true)
+                        : isStored(roomKey, version, bytes))
+                .thenApply(success -> {
+                    if (success) {
+                        writes.incrementAndGet();
+                    }
+                    return success;
+                });
+    }
+
+    /**
+     * Whether a version holds exactly these bytes: the write was ours and landed
+     * even though its answer was lost or came after the deadline
+     */
+    private CompletableFuture<Boolean> isStored(Number160 roomKey, Number160 version, byte[] bytes) {
+        return CallPolicy.of(CallPolicy.Type.READ).call(() -> dht.get(roomKey)
+                .contentKey(Number160.ZERO)
+                .versionKey(version)
+                .start())
+                .handle((futureGet, failure) -> failure == null && futureGet.isSuccess() && !futureGet.isEmpty()
+                        && Arrays.equals(futureGet.data().toBytes(), bytes));
+    }
+
+    private Number160 roomKey(String gameCode) {
+        return Number160.createHash(gameCode);
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    /**
+     * Writes lost to another peer's write of the same version
+     */
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * Updates given up after {@link #MAX_ATTEMPTS} lost attempts
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+}
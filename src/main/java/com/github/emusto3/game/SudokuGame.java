@@ -12,11 +12,15 @@ import org.beryx.textio.TextIO;
 import org.beryx.textio.TextIoFactory;
 import org.beryx.textio.TextTerminal;
 
+import com.github.emusto3.beans.Board;
 import com.github.emusto3.beans.Challenge;
+import com.github.emusto3.beans.ChallengeSummary;
+import com.github.emusto3.beans.Message;
 import com.github.emusto3.beans.Pair;
 import com.github.emusto3.beans.Player;
 import com.github.emusto3.beans.Sudoku;
 import com.github.emusto3.exceptions.MasterPeerNotFoundException;
+import com.github.emusto3.exceptions.RegistrationFailedException;
 import com.github.emusto3.interfaces.Client;
 import com.github.emusto3.interfaces.MessageListener;
 
@@ -122,49 +126,22 @@ public class SudokuGame {
 
         @Override
         public Object parseMessage(Object obj) throws Exception {
-            if (isChallengeListUpdate(obj)) {
-                handleChallengeListUpdate(obj);
-            } else if (isChallengeUpdate(obj)) {
-                handleChallengeUpdate(obj);
+            // The client has already applied the update, just let the player refresh
+            Message message = (Message) obj;
+            switch (message.getType()) {
+                case LOBBY_EVENT:
+                    if (peer.getChallenge() == null) {
+                        showUpdateNotification("Nuove partite create, clicca invio per aggiornare");
+                    }
+                    break;
+                case CHALLENGE:
+                case MOVE:
+                    showUpdateNotification("Aggiornamento sfida, clicca invio per aggiornare");
+                    break;
             }
             return "success";
         }
 
-        /**
-         * Checks if the received object is a challenge list update
-         */
-        private boolean isChallengeListUpdate(Object obj) {
-            return obj.getClass().equals(peer.getChallenges().getClass());
-        }
-
-        /**
-         * Checks if the received object is a challenge update
-         */
-        private boolean isChallengeUpdate(Object obj) {
-            return peer.getChallenge() != null && 
-                   obj.getClass().equals(peer.getChallenge().getClass());
-        }
-
-        /**
-         * Handles updates to the challenge list
-         */
-        private void handleChallengeListUpdate(Object obj) throws Exception {
-            peer.setChallenges((ArrayList<Challenge>) obj);
-            if (peer.getChallenge() == null) {
-                showUpdateNotification("Nuove partite create, clicca invio per aggiornare");
-            }
-        }
-
-        /**
-         * Handles updates to the current challenge
-         */
-        private void handleChallengeUpdate(Object obj) throws Exception {
-            peer.setChallenge((Challenge) obj);
-            if (peer.getChallenge() != null) {
-                showUpdateNotification("Aggiornamento sfida, clicca invio per aggiornare");
-            }
-        }
-
         /**
          * Shows an update notification to the user
          */
@@ -190,13 +167,19 @@ public class SudokuGame {
 
             String nickname = promptForNickname();
 
-            if (isValidNickname(nickname) && registerPlayer(nickname)) {
-                terminal.resetToBookmark("BOOKMARK");
-                break;
-            } else {
-                displayNicknameError(nickname);
-                terminal.resetToBookmark("BOOKMARK");
+            try {
+                if (isValidNickname(nickname) && registerPlayer(nickname)) {
+                    terminal.resetToBookmark("BOOKMARK");
+                    break;
+                }
+                displayNicknameError(!isValidNickname(nickname)
+                        ? "La lunghezza del nickname deve essere compresa tra " +
+                          MIN_NICKNAME_LENGTH + " e " + MAX_NICKNAME_LENGTH + " caratteri"
+                        : "Nickname già utilizzato");
+            } catch (RegistrationFailedException e) {
+                displayNicknameError(e.getMessage());
             }
+            terminal.resetToBookmark("BOOKMARK");
         }
     }
 
@@ -233,18 +216,13 @@ public class SudokuGame {
     }
 
     /**
-     * Displays appropriate error message for invalid nickname
+     * Displays why the nickname was not registered
      */
-    private void displayNicknameError(String nickname) throws Exception {
+    private void displayNicknameError(String errorMessage) throws Exception {
         terminal.println("  ");
         terminal.println("  ");
         setTerminalColor(COLOR_RED);
         
-        String errorMessage = !isValidNickname(nickname) 
-            ? "La lunghezza del nickname deve essere compresa tra " + 
-              MIN_NICKNAME_LENGTH + " e " + MAX_NICKNAME_LENGTH + " caratteri"
-            : "Nickname già utilizzato";
-            
         terminal.println("  " + errorMessage);
         Thread.sleep(2000);
         setTerminalColor(COLOR_WHITE);
@@ -255,6 +233,7 @@ public class SudokuGame {
      */
     public void showChoicesScreen() throws Exception {
         clearScreen();
+        peer.subscribe(ClientImpl.LOBBY_TOPIC);
 
         while (true) {
             terminal.setBookmark("TABELLONE");
@@ -327,9 +306,9 @@ public class SudokuGame {
      * Displays the list of available challenges
      */
     private void displayChallengesList() {
-        for (Challenge challenge : peer.getChallenges()) {
+        for (ChallengeSummary challenge : peer.getChallenges()) {
             String formattedGameCode = formatGameCodeForDisplay(challenge.getCodice_partita());
-            int playerCount = challenge.getPlayers_scores().size();
+            int playerCount = challenge.getPlayers();
             String creator = challenge.getOwner();
             
             terminal.println("\n  " + formattedGameCode + "\t\t\t" + playerCount + "\t\t\t" + creator);
@@ -462,9 +441,23 @@ public class SudokuGame {
     }
 
     /**
-     * Main game screen where the Sudoku challenge takes place
+     * Main game screen where the Sudoku challenge takes place.
+     * While it is shown the player follows the room instead of the lobby.
      */
     public void showGameScreen() throws Exception {
+        String roomTopic = ClientImpl.roomTopic(peer.getChallenge().getCodice_partita());
+        peer.unsubscribe(ClientImpl.LOBBY_TOPIC);
+        peer.subscribe(roomTopic);
+
+        try {
+            runGameScreen();
+        } finally {
+            peer.unsubscribe(roomTopic);
+            peer.subscribe(ClientImpl.LOBBY_TOPIC);
+        }
+    }
+
+    private void runGameScreen() throws Exception {
         int countdown = GAME_EXIT_COUNTDOWN;
 
         while (true) {
@@ -602,10 +595,10 @@ public class SudokuGame {
         StringBuilder rowBuilder = new StringBuilder();
         rowBuilder.append(" ").append(rowLabel).append(" ");
         
-        int[][] board = sudoku.getSudoku_sfida();
+        Board board = sudoku.getSfida();
         
         for (int col = 0; col < SUDOKU_SIZE; col++) {
-            String cellValue = (board[row][col] == 0) ? " " : String.valueOf(board[row][col]);
+            String cellValue = board.isEmpty(row, col) ? " " : String.valueOf(board.get(row, col));
             rowBuilder.append("| ").append(cellValue).append(" ");
         }
         
@@ -0,0 +1,141 @@
+package com.github.emusto3.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import com.github.emusto3.beans.Message;
+import com.github.emusto3.beans.Player;
+import com.github.emusto3.codec.Codec;
+
+import net.tomp2p.peers.PeerAddress;
+
+/**
+ * Broadcasts a message along a tree built from the recipient list.
+ *
+ * The origin splits the recipients into {@code fanOut} groups and sends the message
+ * to the first player of each group, with the rest of the group as its relay list.
+ * Every receiver does the same with its own list, so each peer sends at most
+ * {@code fanOut} messages and the broadcast reaches N players in log_fanOut(N) hops.
+ * If a group leader cannot be reached, the sender takes over its group once its sends
+ * have completed, so neither the sender nor a relaying peer waits on the deadlines.
+ * Leaders that could not be reached are reported to the {@code unreachable} callback.
+ * Message ids already seen are ignored, so a message relayed twice is handled once.
+ */
+public class TreeDisseminator {
+
+    public static final String FAN_OUT_PROPERTY = "sudoku.lobby.fanout";
+    public static final int DEFAULT_FAN_OUT = 4;
+    private static final int SEEN_CAPACITY = 1024;
+
+    private final FanOutDispatcher fanOut;
+    private final int degree;
+    private final Consumer<String> unreachable;
+    private final Set<Long> seen = Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > SEEN_CAPACITY;
+        }
+    });
+
+    public TreeDisseminator(FanOutDispatcher fanOut, int degree) {
+        this(fanOut, degree, nickname -> { });
+    }
+
+    /**
+     * @param unreachable told the nickname of every group leader a send failed on
+     */
+    public TreeDisseminator(FanOutDispatcher fanOut, int degree, Consumer<String> unreachable) {
+        this.fanOut = fanOut;
+        this.degree = Math.max(1, degree);
+        this.unreachable = unreachable;
+    }
+
+    /**
+     * Fan-out from the {@value #FAN_OUT_PROPERTY} system property, 0 or less disables the tree
+     */
+    public static int configuredFanOut() {
+        return Integer.getInteger(FAN_OUT_PROPERTY, DEFAULT_FAN_OUT);
+    }
+
+    /**
+     * Starts a broadcast of the message to the recipients
+     * @return completes once this peer's sends, takeovers included, have completed
+     */
+    public CompletableFuture<Void> broadcast(Message message, List<Player> recipients) {
+        long id = ThreadLocalRandom.current().nextLong();
+        if (id == 0) {
+            id = 1;
+        }
+        markSeen(id);
+        return forward(message, id, recipients);
+    }
+
+    /**
+     * Passes a received message on to its relay list, without waiting for the sends
+     * @return false if the message was already handled
+     */
+    public boolean relay(Message message) {
+        if (message.getId() == 0) {
+            return true; // Sent directly, nothing to relay
+        }
+        if (!markSeen(message.getId())) {
+            return false;
+        }
+        forward(message, message.getId(), message.getRelay());
+        return true;
+    }
+
+    private CompletableFuture<Void> forward(Message message, long id, List<Player> targets) {
+        if (targets.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<String, PeerAddress> leaders = new HashMap<>();
+        Map<String, List<Player>> groups = new HashMap<>();
+        for (List<Player> group : groups(targets, degree)) {
+            Player leader = group.get(0);
+            leaders.put(leader.getNickname(), leader.getPeerAdd());
+            groups.put(leader.getNickname(), new ArrayList<>(group.subList(1, group.size())));
+        }
+
+        return fanOut.sendAsync(leaders, nickname -> Codec.encodeMessage(
+                new Message(message.getType(), message.getSender(), message.getPayload(), id, groups.get(nickname))))
+                .thenCompose(failed -> {
+                    List<CompletableFuture<Void>> takeovers = new ArrayList<>();
+                    for (String nickname : failed) {
+                        unreachable.accept(nickname);
+                        takeovers.add(forward(message, id, groups.get(nickname)));
+                    }
+                    return CompletableFuture.allOf(takeovers.toArray(new CompletableFuture<?>[0]));
+                });
+    }
+
+    /**
+     * Splits the targets into at most {@code degree} groups of consecutive players,
+     * of equal size but the last. The first player of each group is its leader.
+     */
+    public static List<List<Player>> groups(List<Player> targets, int degree) {
+        List<List<Player>> groups = new ArrayList<>();
+        int fanOut = Math.max(1, degree);
+        int groupSize = (targets.size() + fanOut - 1) / fanOut;
+
+        for (int from = 0; from < targets.size(); from += groupSize) {
+            groups.add(targets.subList(from, Math.min(from + groupSize, targets.size())));
+        }
+        return groups;
+    }
+
+    private boolean markSeen(long id) {
+        synchronized (seen) {
+            return seen.add(id);
+        }
+    }
+}
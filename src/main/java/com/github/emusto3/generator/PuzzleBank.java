@@ -0,0 +1,159 @@
+package com.github.emusto3.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.github.emusto3.beans.Board;
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.Puzzle;
+import com.github.emusto3.interfaces.PuzzleSource;
+
+/**
+ * Read-only puzzle bank mapped in memory.
+ *
+ * File layout (big endian):
+ * <pre>
+ * header:  int magic, short version, short record size, int difficulty count,
+ *          then for each difficulty (in enum order) long offset, int count
+ * records: packed givens (41 bytes) + packed solution (41 bytes),
+ *          grouped by difficulty
+ * </pre>
+ * Cells are stored as 4-bit values, two per byte, as in {@link Board#toBytes()}.
+ */
+public class PuzzleBank implements PuzzleSource, Closeable {
+
+    public static final int MAGIC = 0x53444B42; // "SDKB"
+    public static final short VERSION = 1;
+    public static final int RECORD_SIZE = 2 * Board.PACKED_LENGTH;
+    public static final int INDEX_ENTRY_SIZE = 8 + 4;
+    public static final int HEADER_SIZE = 4 + 2 + 2 + 4 + Difficulty.values().length * INDEX_ENTRY_SIZE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long[] offsets = new long[Difficulty.values().length];
+    private final int[] counts = new int[Difficulty.values().length];
+
+    private PuzzleBank(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        readHeader();
+    }
+
+    /**
+     * Maps the bank file. Only the header is read; records are paged in on access.
+     */
+    public static PuzzleBank open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new PuzzleBank(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readHeader() throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a puzzle bank file");
+        }
+        if (buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_SIZE) {
+            throw new IOException("Unsupported puzzle bank version " + buffer.getShort(4));
+        }
+
+        int difficulties = Math.min(buffer.getInt(8), offsets.length);
+        for (int i = 0; i < difficulties; i++) {
+            int entry = 12 + i * INDEX_ENTRY_SIZE;
+            offsets[i] = buffer.getLong(entry);
+            counts[i] = buffer.getInt(entry + 8);
+            if (offsets[i] + (long) counts[i] * RECORD_SIZE > buffer.capacity()) {
+                throw new IOException("Truncated puzzle bank file");
+            }
+        }
+    }
+
+    public int count(Difficulty difficulty) {
+        return counts[difficulty.ordinal()];
+    }
+
+    /**
+     * Reads the puzzle at the given index for the difficulty
+     */
+    public Puzzle get(Difficulty difficulty, int index) {
+        int record = recordOffset(difficulty, index);
+        byte[] givens = new byte[Board.PACKED_LENGTH];
+        byte[] solution = new byte[Board.PACKED_LENGTH];
+        for (int i = 0; i < Board.PACKED_LENGTH; i++) {
+            givens[i] = buffer.get(record + i);
+            solution[i] = buffer.get(record + Board.PACKED_LENGTH + i);
+        }
+        return new Puzzle(givens, solution, difficulty);
+    }
+
+    /**
+     * Deterministic puzzle for a seed: the same seed always maps to the same record
+     */
+    public Puzzle bySeed(Difficulty difficulty, long seed) {
+        return get(difficulty, (int) Math.floorMod(seed, (long) count(difficulty)));
+    }
+
+    /**
+     * Reads one given cell straight from the mapped file (0 if empty)
+     */
+    public int cell(Difficulty difficulty, int index, int cell) {
+        return nibble(recordOffset(difficulty, index), cell);
+    }
+
+    /**
+     * Reads one solution cell straight from the mapped file
+     */
+    public int solutionCell(Difficulty difficulty, int index, int cell) {
+        return nibble(recordOffset(difficulty, index) + Board.PACKED_LENGTH, cell);
+    }
+
+    @Override
+    public Puzzle next(Difficulty difficulty) {
+        if (count(difficulty) == 0) {
+            throw new IllegalStateException("No " + difficulty + " puzzles in the bank");
+        }
+        return get(difficulty, ThreadLocalRandom.current().nextInt(count(difficulty)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int nibble(int offset, int cell) {
+        int b = buffer.get(offset + (cell >> 1));
+        return (cell & 1) == 0 ? b & 0x0F : (b >> 4) & 0x0F;
+    }
+
+    private int recordOffset(Difficulty difficulty, int index) {
+        if (index < 0 || index >= count(difficulty)) {
+            throw new IndexOutOfBoundsException("Puzzle " + index + " not in bank for " + difficulty);
+        }
+        return (int) (offsets[difficulty.ordinal()] + (long) index * RECORD_SIZE);
+    }
+
+    /**
+     * Writes the bank header for the given per-difficulty record counts
+     */
+    static ByteBuffer header(int[] counts) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).putInt(counts.length);
+
+        long offset = HEADER_SIZE;
+        for (int count : counts) {
+            header.putLong(offset).putInt(count);
+            offset += (long) count * RECORD_SIZE;
+        }
+        header.flip();
+        return header;
+    }
+}
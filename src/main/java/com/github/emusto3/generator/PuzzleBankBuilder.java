@@ -0,0 +1,213 @@
+package com.github.emusto3.generator;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import com.github.emusto3.beans.Board;
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.Puzzle;
+
+/**
+ * Builds a {@link PuzzleBank} file, either from the generator or from a text import.
+ *
+ * Import format: one puzzle per line, 81 characters with digits for givens and
+ * '0' or '.' for empty cells, optionally followed by whitespace and the 81-digit
+ * solution. Missing solutions are computed; puzzles without a unique solution are skipped.
+ * Records are spooled to one temporary file per difficulty, so memory use does
+ * not depend on the bank size.
+ */
+public class PuzzleBankBuilder implements Closeable {
+
+    private static final int GENERATION_BATCH = 1024;
+
+    @Option(name = "-o", aliases = "--output", usage = "the bank file to write", required = true)
+    private String output;
+
+    @Option(name = "-n", aliases = "--count", usage = "puzzles to generate for each difficulty")
+    private int count = 0;
+
+    @Option(name = "-i", aliases = "--import", usage = "text file of puzzles to import")
+    private String importFile;
+
+    private final Path[] spools = new Path[Difficulty.values().length];
+    private final OutputStream[] spoolStreams = new OutputStream[Difficulty.values().length];
+    private final int[] counts = new int[Difficulty.values().length];
+    private final byte[] record = new byte[PuzzleBank.RECORD_SIZE];
+    private int skipped = 0;
+
+    public PuzzleBankBuilder() throws IOException {
+        for (int i = 0; i < spools.length; i++) {
+            spools[i] = Files.createTempFile("puzzle-bank-" + i, ".spool");
+            spoolStreams[i] = new BufferedOutputStream(Files.newOutputStream(spools[i]));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (PuzzleBankBuilder builder = new PuzzleBankBuilder()) {
+            CmdLineParser parser = new CmdLineParser(builder);
+            try {
+                parser.parseArgument(args);
+            } catch (CmdLineException e) {
+                System.err.println(e.getMessage());
+                parser.printUsage(System.err);
+                return;
+            }
+            builder.run();
+        }
+    }
+
+    private void run() throws IOException {
+        if (importFile != null) {
+            importText(Paths.get(importFile));
+        }
+        for (Difficulty difficulty : Difficulty.values()) {
+            generate(difficulty, count);
+        }
+        writeTo(Paths.get(output));
+
+        System.out.println("Puzzle bank " + output + " written:");
+        for (Difficulty difficulty : Difficulty.values()) {
+            System.out.println("  " + difficulty + ": " + counts[difficulty.ordinal()]);
+        }
+        if (skipped > 0) {
+            System.out.println("  skipped: " + skipped);
+        }
+    }
+
+    public void add(Puzzle puzzle) throws IOException {
+        int i = puzzle.getDifficulty().ordinal();
+        puzzle.writeTo(record, 0);
+        spoolStreams[i].write(record);
+        counts[i]++;
+    }
+
+    /**
+     * Generates puzzles in fork/join batches
+     */
+    public void generate(Difficulty difficulty, int total) throws IOException {
+        for (int done = 0; done < total; done += GENERATION_BATCH) {
+            List<Puzzle> batch = SudokuGenerator.generateAll(Math.min(GENERATION_BATCH, total - done), difficulty);
+            for (Puzzle puzzle : batch) {
+                add(puzzle);
+            }
+        }
+    }
+
+    public void importText(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                Puzzle puzzle = parseLine(line);
+                if (puzzle == null) {
+                    skipped++;
+                } else {
+                    add(puzzle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses an import line, returns null if it is malformed or not uniquely solvable
+     */
+    static Puzzle parseLine(String line) {
+        String[] parts = line.split("\\s+");
+        Board givens = parseBoard(parts[0]);
+        if (givens == null || SudokuSolver.countSolutions(givens, 2) != 1) {
+            return null;
+        }
+
+        Board solution;
+        if (parts.length > 1) {
+            solution = parseBoard(parts[1]);
+            if (solution == null || !solution.isComplete() || !matches(givens, solution)) {
+                return null;
+            }
+        } else {
+            solution = new Board(givens);
+            SudokuSolver.solve(solution, new Random(0));
+        }
+
+        int clues = Board.CELLS - givens.getEmptyCount();
+        return new Puzzle(givens, solution, Difficulty.forClues(clues));
+    }
+
+    private static Board parseBoard(String text) {
+        if (text.length() != Board.CELLS) {
+            return null;
+        }
+        Board board = new Board();
+        for (int i = 0; i < Board.CELLS; i++) {
+            char c = text.charAt(i);
+            if (c >= '1' && c <= '9') {
+                if (!board.canPlace(i, c - '0')) {
+                    return null;
+                }
+                board.set(i, c - '0');
+            } else if (c != '0' && c != '.') {
+                return null;
+            }
+        }
+        return board;
+    }
+
+    private static boolean matches(Board givens, Board solution) {
+        for (int i = 0; i < Board.CELLS; i++) {
+            if (givens.get(i) != 0 && givens.get(i) != solution.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes header and spooled records to the bank file
+     */
+    public void writeTo(Path file) throws IOException {
+        for (OutputStream stream : spoolStreams) {
+            stream.flush();
+        }
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(PuzzleBank.header(counts));
+            for (Path spool : spools) {
+                try (FileChannel in = FileChannel.open(spool, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; i < spools.length; i++) {
+            spoolStreams[i].close();
+            Files.deleteIfExists(spools[i]);
+        }
+    }
+}
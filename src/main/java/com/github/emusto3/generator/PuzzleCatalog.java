@@ -0,0 +1,187 @@
+package com.github.emusto3.generator;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.github.emusto3.beans.Board;
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.Puzzle;
+import com.github.emusto3.interfaces.PuzzleResolver;
+
+/**
+ * Shared, process-wide catalog of immutable puzzle definitions keyed by content id.
+ * Every Sudoku resolves its puzzle here, so identical boards are held once in memory.
+ */
+public final class PuzzleCatalog {
+
+    private static final int[][][] LEGACY_GRIDS = {
+        {
+            {8, 4, 3, 5, 7, 1, 6, 9, 2},
+            {9, 1, 7, 8, 6, 2, 5, 4, 3},
+            {6, 5, 2, 9, 4, 3, 1, 8, 7},
+            {4, 3, 6, 1, 2, 5, 8, 7, 9},
+            {2, 8, 5, 7, 3, 9, 4, 1, 6},
+            {7, 9, 1, 4, 8, 6, 3, 2, 5},
+            {5, 7, 9, 3, 1, 8, 2, 6, 4},
+            {1, 6, 4, 2, 5, 7, 9, 3, 8},
+            {3, 2, 8, 6, 9, 4, 7, 5, 1}
+        },
+        {
+            {4, 3, 7, 9, 1, 2, 6, 5, 8},
+            {8, 1, 6, 7, 5, 3, 2, 4, 9},
+            {9, 2, 5, 8, 6, 4, 1, 7, 3},
+            {2, 9, 3, 6, 7, 5, 4, 8, 1},
+            {1, 6, 8, 2, 4, 9, 7, 3, 5},
+            {5, 7, 4, 3, 8, 1, 9, 2, 6},
+            {7, 8, 1, 4, 3, 6, 5, 9, 2},
+            {6, 4, 2, 5, 9, 8, 3, 1, 7},
+            {3, 5, 9, 1, 2, 7, 8, 6, 4}
+        },
+        {
+            {8,6, 2, 7, 9, 4, 5, 3, 1},
+            {5,3, 4, 8, 1, 6, 7, 9, 2},
+            {1,9, 7, 3, 5, 2, 8, 6, 4},
+            {9,8, 1, 2, 7, 3, 4, 5, 6},
+            {4,2, 3, 6, 8, 5, 9, 1, 7},
+            {6,7, 5, 9, 4, 1, 2, 8, 3},
+            {2,4, 9, 1, 3, 8, 6, 7, 5},
+            {3,5, 8, 4, 6, 7, 1, 2, 9},
+            {7,1, 6, 5, 2, 9, 3, 4, 8}
+        },
+        {
+            {5, 7, 2, 6, 1, 8, 3, 9, 4},
+            {1, 9, 4, 5, 2, 3, 7, 8, 6},
+            {8, 3, 6, 7, 9, 4, 1, 5, 2},
+            {2, 8, 1, 3, 4, 5, 6, 7, 9},
+            {9, 6, 7, 2, 8, 1, 4, 3, 5},
+            {4, 5, 3, 9, 6, 7, 8, 2, 1},
+            {6, 1, 9, 8, 7, 2, 5, 4, 3},
+            {7, 4, 5, 1, 3, 9, 2, 6, 8},
+            {3, 2, 8, 4, 5, 6, 9, 1, 7}
+        },
+        {
+            {3, 5, 8, 2, 7, 4, 1, 9, 6},
+            {4, 6, 7, 9, 3, 1, 8, 2, 5},
+            {1, 9, 2, 5, 6, 8, 3, 7, 4},
+            {7, 1, 9, 3, 4, 6, 5, 8, 2},
+            {2, 8, 4, 1, 5, 7, 9, 6, 3},
+            {5, 3, 6, 8, 2, 9, 4, 1, 7},
+            {9, 4, 5, 7, 8, 2, 6, 3, 1},
+            {6, 2, 1, 4, 9, 3, 7, 5, 8},
+            {8, 7, 3, 6, 1, 5, 2, 4, 9}
+        },
+        {
+            {5, 1, 6, 3, 4, 2, 8, 9, 7},
+            {9, 3, 8, 7, 5, 6, 1, 4, 2},
+            {4, 2, 7, 9, 8, 1, 3, 5, 6},
+            {6, 9, 3, 5, 7, 4, 2, 1, 8},
+            {8, 4, 5, 2, 1, 3, 7, 6, 9},
+            {1, 7, 2, 8, 6, 9, 4, 3, 5},
+            {2, 8, 9, 1, 3, 5, 6, 7, 4},
+            {7, 6, 1, 4, 9, 8, 5, 2, 3},
+            {3, 5, 4, 6, 2, 7, 9, 8, 1}
+        },
+        {
+            {7, 8, 9, 1, 4, 2, 3, 5, 6},
+            {5, 2, 3, 8, 6, 7, 1, 4, 9},
+            {1, 6, 4, 5, 3, 9, 2, 7, 8},
+            {4, 9, 8, 3, 2, 5, 6, 1, 7},
+            {3, 5, 1, 6, 7, 8, 9, 2, 4},
+            {6, 7, 2, 9, 1, 4, 8, 3, 5},
+            {2, 3, 5, 7, 8, 6, 4, 9, 1},
+            {9, 4, 6, 2, 5, 1, 7, 8, 3},
+            {8, 1, 7, 4, 9, 3, 5, 6, 2}
+        },
+        {
+            {3, 9, 6, 2, 8, 4, 5, 1, 7},
+            {1, 2, 8, 7, 3, 5, 4, 9, 6},
+            {5, 4, 7, 9, 6, 1, 2, 3, 8},
+            {4, 8, 2, 5, 7, 3, 1, 6, 9},
+            {6, 1, 3, 8, 9, 2, 7, 4, 5},
+            {7, 5, 9, 4, 1, 6, 8, 2, 3},
+            {2, 6, 5, 3, 4, 7, 9, 8, 1},
+            {9, 7, 1, 6, 2, 8, 3, 5, 4},
+            {8, 3, 4, 1, 5, 9, 6, 7, 2}
+        }
+    };
+
+    // Never evicted: definitions are immutable and small
+    private static final ConcurrentHashMap<String, Puzzle> PUZZLES = new ConcurrentHashMap<>();
+    private static final Puzzle[] LEGACY = new Puzzle[LEGACY_GRIDS.length];
+    private static final List<PuzzleResolver> RESOLVERS = new CopyOnWriteArrayList<>();
+
+    private PuzzleCatalog() {
+    }
+
+    /**
+     * Returns the shared instance for this puzzle, registering it if it is new
+     */
+    public static Puzzle intern(Puzzle puzzle) {
+        Puzzle existing = PUZZLES.putIfAbsent(puzzle.getId(), puzzle);
+        return existing != null ? existing : puzzle;
+    }
+
+    /**
+     * Looks up a puzzle by id, asking the registered resolvers on a local miss.
+     * Returns null if nobody knows the puzzle.
+     */
+    public static Puzzle resolve(String id) {
+        Puzzle puzzle = PUZZLES.get(id);
+        if (puzzle != null) {
+            return puzzle;
+        }
+
+        for (PuzzleResolver resolver : RESOLVERS) {
+            try {
+                puzzle = resolver.fetch(id);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            if (puzzle != null && puzzle.getId().equals(id)) {
+                return intern(puzzle);
+            }
+        }
+        return null;
+    }
+
+    public static boolean contains(String id) {
+        return PUZZLES.containsKey(id);
+    }
+
+    public static void addResolver(PuzzleResolver resolver) {
+        RESOLVERS.add(resolver);
+    }
+
+    public static void removeResolver(PuzzleResolver resolver) {
+        RESOLVERS.remove(resolver);
+    }
+
+    public static int size() {
+        return PUZZLES.size();
+    }
+
+    /**
+     * One of the built-in grids, with the original checkerboard of empty cells
+     */
+    public static synchronized Puzzle legacy(int index) {
+        if (LEGACY[index] == null) {
+            Board solution = new Board(LEGACY_GRIDS[index]);
+            Board givens = new Board(solution);
+            for (int i = 0; i < Board.SIZE; i++) {
+                for (int j = 0; j < Board.SIZE; j++) {
+                    if (i % 2 == j % 2) {
+                        givens.clear(i, j);
+                    }
+                }
+            }
+            int clues = Board.CELLS - givens.getEmptyCount();
+            LEGACY[index] = intern(new Puzzle(givens, solution, Difficulty.forClues(clues)));
+        }
+        return LEGACY[index];
+    }
+
+    public static int legacyCount() {
+        return LEGACY_GRIDS.length;
+    }
+}
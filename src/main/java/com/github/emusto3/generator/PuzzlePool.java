@@ -0,0 +1,241 @@
+package com.github.emusto3.generator;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.Puzzle;
+import com.github.emusto3.interfaces.PuzzleSource;
+
+/**
+ * Bounded per-difficulty pool of ready puzzles.
+ * A background producer refills a queue up to its capacity as soon as it drops
+ * below the low watermark; take() only generates synchronously when the queue is empty.
+ */
+public class PuzzlePool {
+
+    private static final int DEFAULT_CAPACITY = 32;
+    private static final int DEFAULT_LOW_WATERMARK = 8;
+    private static final long IDLE_WAIT_MILLIS = 1000;
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    // System property naming a puzzle bank file to use instead of the generator
+    public static final String BANK_PROPERTY = "sudoku.bank";
+
+    private static PuzzlePool defaultPool;
+
+    private final PuzzleSource source;
+    private final int capacity;
+    private final int lowWatermark;
+    private final Map<Difficulty, ArrayBlockingQueue<Puzzle>> queues = new EnumMap<>(Difficulty.class);
+    // Time at which each queue fell below the low watermark, 0 while it is above
+    private final Map<Difficulty, AtomicLong> lowSince = new EnumMap<>(Difficulty.class);
+    private final Object refillSignal = new Object();
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong produced = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastRefillLagMillis = 0;
+    private volatile long maxRefillLagMillis = 0;
+
+    private volatile Thread producer;
+
+    public PuzzlePool(PuzzleSource source, int capacity, int lowWatermark) {
+        this.source = source;
+        this.capacity = capacity;
+        this.lowWatermark = lowWatermark;
+
+        long now = System.currentTimeMillis();
+        for (Difficulty difficulty : Difficulty.values()) {
+            queues.put(difficulty, new ArrayBlockingQueue<>(capacity));
+            lowSince.put(difficulty, new AtomicLong(now));
+        }
+    }
+
+    /**
+     * Shared pool, started on first use. Backed by the puzzle bank named by
+     * the sudoku.bank property if there is one, by the generator otherwise.
+     */
+    public static synchronized PuzzlePool getDefault() {
+        if (defaultPool == null) {
+            PuzzleSource source = SudokuGenerator::generate;
+            String bankFile = System.getProperty(BANK_PROPERTY);
+            if (bankFile != null) {
+                try {
+                    source = PuzzleBank.open(Paths.get(bankFile));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            defaultPool = new PuzzlePool(source, DEFAULT_CAPACITY, DEFAULT_LOW_WATERMARK);
+            defaultPool.start();
+        }
+        return defaultPool;
+    }
+
+    /**
+     * Takes a ready puzzle, falling back to the source when the pool is empty
+     */
+    public Puzzle take(Difficulty difficulty) {
+        ArrayBlockingQueue<Puzzle> queue = queues.get(difficulty);
+        Puzzle puzzle = queue.poll();
+
+        if (puzzle != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            puzzle = source.next(difficulty);
+        }
+
+        if (queue.size() < lowWatermark) {
+            lowSince.get(difficulty).compareAndSet(0, System.currentTimeMillis());
+            synchronized (refillSignal) {
+                refillSignal.notifyAll();
+            }
+        }
+        return puzzle;
+    }
+
+    public synchronized void start() {
+        if (producer != null) {
+            return;
+        }
+        producer = new Thread(this::refillLoop, "puzzle-pool");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    public synchronized void shutdown() {
+        if (producer != null) {
+            producer.interrupt();
+            producer = null;
+        }
+    }
+
+    /**
+     * Producer loop: tops up every queue below the watermark, then waits for a take.
+     * A source failing for one difficulty does not stop the others; the producer backs
+     * off, doubling the pause while the failures go on, and tries again.
+     */
+    private void refillLoop() {
+        Thread self = Thread.currentThread();
+        long backoff = MIN_BACKOFF_MILLIS;
+        try {
+            while (producer == self) {
+                boolean failed = false;
+                for (Difficulty difficulty : Difficulty.values()) {
+                    try {
+                        refill(difficulty);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                        failed = true;
+                        e.printStackTrace();
+                    }
+                }
+
+                if (failed) {
+                    // Not woken by takes: the source needs the pause either way
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                    continue;
+                }
+                backoff = MIN_BACKOFF_MILLIS;
+                synchronized (refillSignal) {
+                    if (!needsRefill()) {
+                        refillSignal.wait(IDLE_WAIT_MILLIS);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Pool shut down
+        }
+    }
+
+    private void refill(Difficulty difficulty) throws InterruptedException {
+        AtomicLong since = lowSince.get(difficulty);
+        if (since.get() == 0) {
+            return;
+        }
+
+        ArrayBlockingQueue<Puzzle> queue = queues.get(difficulty);
+        while (queue.remainingCapacity() > 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!queue.offer(source.next(difficulty))) {
+                break;
+            }
+            produced.incrementAndGet();
+        }
+
+        long lag = System.currentTimeMillis() - since.getAndSet(0);
+        if (queue.size() < lowWatermark) {
+            // Drained again while refilling
+            since.compareAndSet(0, System.currentTimeMillis());
+        }
+        lastRefillLagMillis = lag;
+        if (lag > maxRefillLagMillis) {
+            maxRefillLagMillis = lag;
+        }
+    }
+
+    private boolean needsRefill() {
+        for (AtomicLong since : lowSince.values()) {
+            if (since.get() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Metrics
+
+    public int size(Difficulty difficulty) {
+        return queues.get(difficulty).size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public long getProduced() {
+        return produced.get();
+    }
+
+    /**
+     * Refills cut short by the source throwing
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Time between a queue falling below the watermark and being full again
+     */
+    public long getLastRefillLagMillis() {
+        return lastRefillLagMillis;
+    }
+
+    public long getMaxRefillLagMillis() {
+        return maxRefillLagMillis;
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.emusto3.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.github.emusto3.beans.Board;
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.Puzzle;
+
+/**
+ * Generates random puzzles with a unique solution.
+ * A full grid is synthesized first, then clues are removed in random order
+ * as long as the solution stays unique and the difficulty target is not reached.
+ */
+public final class SudokuGenerator {
+
+    // Below this many puzzles a bulk task stops splitting
+    private static final int BULK_THRESHOLD = 8;
+
+    private SudokuGenerator() {
+    }
+
+    public static Puzzle generate(Difficulty difficulty) {
+        return generate(difficulty, ThreadLocalRandom.current());
+    }
+
+    public static Puzzle generate(Difficulty difficulty, long seed) {
+        return generate(difficulty, new Random(seed));
+    }
+
+    public static Puzzle generate(Difficulty difficulty, Random random) {
+        Board solution = generateFullGrid(random);
+        Board givens = removeClues(solution, difficulty.getClues(), random);
+        return new Puzzle(givens, solution, difficulty);
+    }
+
+    /**
+     * Builds a random complete grid. The three diagonal boxes are independent,
+     * so they are filled directly and the solver completes the rest.
+     */
+    static Board generateFullGrid(Random random) {
+        Board board = new Board();
+        int[] digits = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+        for (int box = 0; box < 3; box++) {
+            SudokuSolver.shuffle(digits, random);
+            for (int k = 0; k < Board.SIZE; k++) {
+                board.set(Board.index(box * 3 + k / 3, box * 3 + k % 3), digits[k]);
+            }
+        }
+
+        SudokuSolver.solve(board, random);
+        return board;
+    }
+
+    private static Board removeClues(Board solution, int targetClues, Random random) {
+        Board givens = new Board(solution);
+        int[] order = new int[Board.CELLS];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        SudokuSolver.shuffle(order, random);
+
+        int clues = Board.CELLS;
+        for (int i = 0; i < order.length && clues > targetClues; i++) {
+            int index = order[i];
+            int value = givens.get(index);
+
+            givens.set(index, 0);
+            if (SudokuSolver.countSolutions(givens, 2) == 1) {
+                clues--;
+            } else {
+                givens.set(index, value);
+            }
+        }
+        return givens;
+    }
+
+    /**
+     * Generates many puzzles in parallel on the common fork/join pool.
+     */
+    public static List<Puzzle> generateAll(int count, Difficulty difficulty) {
+        return generateAll(count, difficulty, ForkJoinPool.commonPool());
+    }
+
+    public static List<Puzzle> generateAll(int count, Difficulty difficulty, ForkJoinPool pool) {
+        return pool.invoke(new BulkTask(count, difficulty));
+    }
+
+    /**
+     * Splits a bulk request in halves until it is small enough to run sequentially
+     */
+    private static class BulkTask extends RecursiveTask<List<Puzzle>> {
+        private final int count;
+        private final Difficulty difficulty;
+
+        BulkTask(int count, Difficulty difficulty) {
+            this.count = count;
+            this.difficulty = difficulty;
+        }
+
+        @Override
+        protected List<Puzzle> compute() {
+            if (count <= BULK_THRESHOLD) {
+                List<Puzzle> puzzles = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    puzzles.add(generate(difficulty));
+                }
+                return puzzles;
+            }
+
+            BulkTask left = new BulkTask(count / 2, difficulty);
+            BulkTask right = new BulkTask(count - count / 2, difficulty);
+            left.fork();
+            List<Puzzle> puzzles = right.compute();
+            puzzles.addAll(left.join());
+            return puzzles;
+        }
+    }
+}
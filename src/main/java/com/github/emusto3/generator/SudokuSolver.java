@@ -0,0 +1,119 @@
+package com.github.emusto3.generator;
+
+import java.util.Random;
+
+import com.github.emusto3.beans.Board;
+
+/**
+ * Backtracking solver on top of the {@link Board} bitmasks.
+ * Always branches on the empty cell with the fewest candidates.
+ */
+public final class SudokuSolver {
+
+    private SudokuSolver() {
+    }
+
+    /**
+     * Counts the solutions of the board, stopping at the given limit.
+     * The board is left unchanged.
+     */
+    public static int countSolutions(Board board, int limit) {
+        return count(new Board(board), limit);
+    }
+
+    /**
+     * Fills the board in place with a solution, trying digits in random order.
+     * @return false if the board has no solution
+     */
+    public static boolean solve(Board board, Random random) {
+        int index = mostConstrainedCell(board);
+        if (index == -1) {
+            return true;
+        }
+        if (index == -2) {
+            return false;
+        }
+
+        int[] digits = digitsOf(board.candidates(index));
+        shuffle(digits, random);
+
+        for (int digit : digits) {
+            board.set(index, digit);
+            if (solve(board, random)) {
+                return true;
+            }
+        }
+        board.set(index, 0);
+        return false;
+    }
+
+    private static int count(Board board, int limit) {
+        int index = mostConstrainedCell(board);
+        if (index == -1) {
+            return 1;
+        }
+        if (index == -2) {
+            return 0;
+        }
+
+        int found = 0;
+        int mask = board.candidates(index);
+        while (mask != 0 && found < limit) {
+            int bit = mask & -mask;
+            mask ^= bit;
+            board.set(index, Integer.numberOfTrailingZeros(bit) + 1);
+            found += count(board, limit - found);
+        }
+        board.set(index, 0);
+        return found;
+    }
+
+    /**
+     * Returns the empty cell with the fewest candidates, -1 if the board is full
+     * or -2 if some empty cell has no candidates left.
+     */
+    private static int mostConstrainedCell(Board board) {
+        if (board.isComplete()) {
+            return -1;
+        }
+
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int i = 0; i < Board.CELLS; i++) {
+            if (board.get(i) != 0) {
+                continue;
+            }
+            int count = Integer.bitCount(board.candidates(i));
+            if (count == 0) {
+                return -2;
+            }
+            if (count < bestCount) {
+                best = i;
+                bestCount = count;
+                if (count == 1) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int[] digitsOf(int mask) {
+        int[] digits = new int[Integer.bitCount(mask)];
+        for (int i = 0; mask != 0; i++) {
+            int bit = mask & -mask;
+            mask ^= bit;
+            digits[i] = Integer.numberOfTrailingZeros(bit) + 1;
+        }
+        return digits;
+    }
+
+    static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+}
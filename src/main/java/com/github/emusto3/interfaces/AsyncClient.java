@@ -0,0 +1,34 @@
+package com.github.emusto3.interfaces;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncClient {
+
+	// Creazione nuovo sudoku: stanza, voce nel tabellone e puzzle vengono scritti in parallelo
+	public CompletableFuture<Boolean> generateNewSudokuAsync(String codice_partita, int seed);
+	
+	// Controllo su codice partita da creare, true se ancora libero
+	public CompletableFuture<Boolean> checkChallengeAsync(String codice_partita);
+	
+	// Partecipazione ad una partita
+	public CompletableFuture<Boolean> joinChallengeAsync(String codice_partita);
+	
+	// Avvio effettivo della partita
+	public CompletableFuture<Boolean> startChallengeAsync(String codice_partita);
+	
+	// Abbandono partita
+	public CompletableFuture<Boolean> quitChallengeAsync(String codice_partita);
+	
+	// Inserimento valore nella sudoku board, completato con la variazione di punteggio
+	public CompletableFuture<Integer> placeNumberAsync(String codice_partita, int x, int y, int value);
+	
+	// Aggiornamento passivo singola partita
+	public CompletableFuture<Boolean> reloadChallengeAsync(String codice_partita);
+	
+	// Aggiornamento passivo lista delle partite disponibili
+	public CompletableFuture<Void> reloadChallengeListAsync();
+	
+	// Aggiornamento lista dei giocatori registrati
+	public CompletableFuture<Void> reloadPlayersAsync();
+
+}
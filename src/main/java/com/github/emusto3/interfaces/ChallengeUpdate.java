@@ -0,0 +1,11 @@
+package com.github.emusto3.interfaces;
+
+import com.github.emusto3.beans.Challenge;
+
+public interface ChallengeUpdate {
+
+	// Modifica della partita appena letta dalla DHT, false se non c'è nulla da salvare.
+	// Può essere richiamata più volte se un altro peer modifica la partita nel frattempo
+	public boolean apply(Challenge challenge) throws Exception;
+
+}
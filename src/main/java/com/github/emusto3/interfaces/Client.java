@@ -3,6 +3,8 @@ package com.github.lorenzopetra96.interfaces;
 import java.util.ArrayList;
 
 import com.github.lorenzopetra96.beans.Challenge;
+import com.github.lorenzopetra96.beans.ChallengeSummary;
+import com.github.lorenzopetra96.beans.MoveApplied;
 import com.github.lorenzopetra96.beans.Pair;
 import com.github.lorenzopetra96.beans.Player;
 
@@ -51,6 +53,18 @@ public interface Client {
 	// Inserimento valore nella sudoku board
 	public Integer placeNumber(String codice_partita, int x, int y, int value) throws Exception;
 	
+	// Applicazione di una mossa ricevuta da un altro partecipante
+	public boolean applyMove(MoveApplied move) throws Exception;
+	
+	// Aggiornamento con una partita ricevuta da un altro partecipante, scartata se non più recente
+	public boolean updateChallenge(Challenge challenge) throws Exception;
+	
+	// Iscrizione agli aggiornamenti di un argomento (tabellone o singola partita)
+	public void subscribe(String topic) throws Exception;
+	
+	// Cancellazione dell'iscrizione a un argomento
+	public void unsubscribe(String topic) throws Exception;
+	
 	// Abbandono rete
 	public boolean leaveNetwork();
 	
@@ -58,7 +72,7 @@ public interface Client {
 	public void shutdown();
 	
 	// Recupero lista partite disponibili
-	public ArrayList<Challenge> getChallenges();
+	public ArrayList<ChallengeSummary> getChallenges();
 
 	// Recupero partita
 	public Challenge getChallenge();
@@ -71,7 +85,7 @@ public interface Client {
 	
 	public void setPlayers(ArrayList<Player> players);
 	
-	public void setChallenges(ArrayList<Challenge> challenges);
+	public void setChallenges(ArrayList<ChallengeSummary> challenges);
 
 	public void setChallenge(Challenge challenge);
 	
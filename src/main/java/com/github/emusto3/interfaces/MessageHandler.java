@@ -0,0 +1,12 @@
+package com.github.emusto3.interfaces;
+
+import com.github.emusto3.beans.Message;
+
+import net.tomp2p.peers.PeerAddress;
+
+public interface MessageHandler {
+
+	// Gestione di un messaggio ricevuto da un altro peer
+	public void handle(PeerAddress sender, Message message) throws Exception;
+
+}
@@ -0,0 +1,10 @@
+package com.github.emusto3.interfaces;
+
+import com.github.emusto3.beans.Puzzle;
+
+public interface PuzzleResolver {
+	
+	// Recupero di una definizione di puzzle non presente in locale (null se non trovata)
+	public Puzzle fetch(String puzzleId) throws Exception;
+
+}
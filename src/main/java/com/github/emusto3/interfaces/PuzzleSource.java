@@ -0,0 +1,11 @@
+package com.github.emusto3.interfaces;
+
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.Puzzle;
+
+public interface PuzzleSource {
+	
+	// Fornisce un nuovo puzzle della difficoltà richiesta
+	public Puzzle next(Difficulty difficulty);
+
+}
@@ -0,0 +1,13 @@
+package com.github.emusto3.interfaces;
+
+import com.github.emusto3.beans.Message;
+
+import net.tomp2p.peers.PeerAddress;
+
+public interface RequestHandler {
+
+	// Gestione di una richiesta ricevuta da un altro peer, il valore restituito è la risposta.
+	// Viene eseguita sul thread delle richieste: il thread di rete di TomP2P ne attende la risposta fino alla scadenza dei messaggi diretti
+	public Object handle(PeerAddress sender, Message message) throws Exception;
+
+}
@@ -0,0 +1,66 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.beans.Board;
+import com.github.emusto3.beans.Sudoku;
+
+
+public class BoardTests {
+
+	@Test
+	void testCase_PlaceAndValidate() {
+
+		Board board = new Board();
+		assertEquals(board.getEmptyCount(), 81);
+
+		assertTrue(board.place(0, 0, 5));
+		assertFalse(board.place(0, 0, 6));
+		assertFalse(board.canPlace(0, 8, 5));
+		assertFalse(board.canPlace(8, 0, 5));
+		assertFalse(board.canPlace(2, 2, 5));
+		assertTrue(board.canPlace(4, 4, 5));
+		assertEquals(board.getEmptyCount(), 80);
+
+		board.clear(0, 0);
+		assertTrue(board.canPlace(0, 8, 5));
+		assertEquals(board.getEmptyCount(), 81);
+	}
+
+	@Test
+	void testCase_CompletionCounter() {
+
+		Sudoku sudoku = new Sudoku(0);
+		int[][] risolto = sudoku.getSudoku_risolto();
+
+		assertEquals(sudoku.contaZeri(), sudoku.contaZeri(sudoku.getSudoku_sfida()));
+
+		for (int i = 0; i < 9; i++) {
+			for (int j = 0; j < 9; j++) {
+				if (sudoku.getSfida().isEmpty(i, j)) {
+					assertTrue(sudoku.placeValue(i, j, risolto[i][j]));
+				}
+			}
+		}
+
+		assertTrue(sudoku.isComplete());
+	}
+
+	@Test
+	void testCase_PackedRoundTrip() {
+
+		Sudoku sudoku = new Sudoku(3);
+		byte[] packed = sudoku.getSfida().toBytes();
+
+		assertEquals(packed.length, Board.PACKED_LENGTH);
+
+		Board copy = Board.fromBytes(packed);
+		assertEquals(copy, sudoku.getSfida());
+		assertEquals(copy.getEmptyCount(), sudoku.getSfida().getEmptyCount());
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.game.CallPolicy;
+
+
+public class CallPolicyTests {
+
+	@Test
+	void testCase_BackoffBounds() {
+
+		CallPolicy policy = new CallPolicy(2000, 5, 50, 1000, true);
+
+		for (int attempt = 1; attempt <= 8; attempt++) {
+			long cap = Math.min(1000, 50L << (attempt - 1));
+			Set<Long> waits = new HashSet<>();
+
+			for (int i = 0; i < 500; i++) {
+				long wait = policy.backoff(attempt);
+				assertTrue(wait >= 1 && wait <= cap, "attempt " + attempt + " waited " + wait);
+				waits.add(wait);
+			}
+			// Jittered, retries of different callers do not line up
+			assertTrue(waits.size() > 10);
+		}
+	}
+
+	@Test
+	void testCase_AttemptsPerCallType() {
+
+		CallPolicy idempotent = new CallPolicy(2000, 3, 50, 1000, true);
+		assertEquals(idempotent.getMaxAttempts(), 3);
+
+		// A second put-if-absent could report its own first write as taken
+		CallPolicy conditional = new CallPolicy(2000, 3, 50, 1000, false);
+		assertEquals(conditional.getMaxAttempts(), 1);
+
+		assertFalse(CallPolicy.of(CallPolicy.Type.CONDITIONAL_WRITE).isIdempotent());
+		assertEquals(CallPolicy.of(CallPolicy.Type.DIRECT).getMaxAttempts(), 1);
+		assertTrue(CallPolicy.of(CallPolicy.Type.READ).isIdempotent());
+	}
+
+}
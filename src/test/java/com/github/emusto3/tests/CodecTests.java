@@ -0,0 +1,231 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.beans.Challenge;
+import com.github.emusto3.beans.ChallengeSummary;
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.LobbyEvent;
+import com.github.emusto3.beans.Message;
+import com.github.emusto3.beans.MessageType;
+import com.github.emusto3.beans.MoveApplied;
+import com.github.emusto3.beans.Pair;
+import com.github.emusto3.beans.Player;
+import com.github.emusto3.beans.Puzzle;
+import com.github.emusto3.beans.RoomRequest;
+import com.github.emusto3.codec.Codec;
+import com.github.emusto3.generator.SudokuGenerator;
+
+
+public class CodecTests {
+
+	@Test
+	void testCase_ChallengeRoundTrip() throws Exception {
+
+		Challenge challenge = new Challenge("challenge1", "lorenzo", -1);
+		challenge.getPlayers_scores().put("mario", -3);
+		challenge.getSudoku_board().placeValue(0, 0, 8);
+		challenge.setStarted(true);
+		challenge.setWinner(new Pair<>("mario", -3));
+
+		Challenge decoded = Codec.decodeChallenge(Codec.encodeChallenge(challenge));
+
+		assertEquals(decoded.getCodice_partita(), "challenge1");
+		assertEquals(decoded.getOwner(), "lorenzo");
+		assertEquals(decoded.getPlayers_scores(), challenge.getPlayers_scores());
+		assertEquals(decoded.getWinner(), challenge.getWinner());
+		assertTrue(decoded.isStarted());
+		assertEquals(decoded.getSudoku_board().getPuzzleId(), challenge.getSudoku_board().getPuzzleId());
+		assertEquals(decoded.getSudoku_board().getSfida(), challenge.getSudoku_board().getSfida());
+		assertEquals(decoded.getSudoku_board().getSoluzione(0, 0), 8);
+	}
+
+	@Test
+	void testCase_ListsAndPuzzleRoundTrip() throws Exception {
+
+		ArrayList<Challenge> challenges = new ArrayList<>();
+		challenges.add(new Challenge("a", "lorenzo", -1));
+		challenges.add(new Challenge("b", "mario", -1));
+		assertEquals(Codec.decodeChallenges(Codec.encodeChallenges(challenges)).size(), 2);
+
+		ArrayList<Player> players = new ArrayList<>(Arrays.asList(new Player("dario")));
+		Player decoded = Codec.decodePlayers(Codec.encodePlayers(players)).get(0);
+		assertEquals(decoded.getNickname(), "dario");
+		assertNull(decoded.getPeerAdd());
+
+		Puzzle puzzle = SudokuGenerator.generate(Difficulty.HARD);
+		assertEquals(Codec.decodePuzzle(Codec.encodePuzzle(puzzle)).getId(), puzzle.getId());
+	}
+
+	@Test
+	void testCase_MoveDelta() throws Exception {
+
+		MoveApplied move = new MoveApplied("challenge1", 4, 7, 9, "mario", -1, 12);
+		byte[] payload = Codec.encodeMove(move);
+
+		assertTrue(payload.length < 48);
+
+		MoveApplied decoded = Codec.decodeMove(payload);
+		assertEquals(decoded.getX(), 4);
+		assertEquals(decoded.getY(), 7);
+		assertEquals(decoded.getValue(), 9);
+		assertEquals(decoded.getScoreDelta(), -1);
+		assertEquals(decoded.getSequence(), 12);
+
+		Challenge challenge = new Challenge("challenge1", "lorenzo", -1);
+		challenge.applyMove(new MoveApplied("challenge1", 0, 0, 8, "lorenzo", 1, 1));
+		assertEquals(challenge.getSudoku_board().getSfida().get(0, 0), 8);
+		assertEquals(challenge.getPlayers_scores().get("lorenzo"), 1);
+		assertEquals(challenge.getVersion(), 1);
+	}
+
+	@Test
+	void testCase_MessageEnvelope() throws Exception {
+
+		Challenge challenge = new Challenge("challenge1", "lorenzo", -1);
+		Message message = Codec.decodeMessage(Codec.encodeMessage(new Message(MessageType.CHALLENGE, "lorenzo", challenge)));
+
+		assertEquals(message.getType(), MessageType.CHALLENGE);
+		assertEquals(message.getSender(), "lorenzo");
+		assertEquals(((Challenge) message.getPayload()).getCodice_partita(), "challenge1");
+
+		MoveApplied move = new MoveApplied("challenge1", 1, 2, 3, "mario", 1, 5);
+		message = Codec.decodeMessage(Codec.encodeMessage(new Message(MessageType.MOVE, "mario", move)));
+		assertEquals(((MoveApplied) message.getPayload()).getSequence(), 5);
+
+
+		ArrayList<Player> relay = new ArrayList<>(Arrays.asList(new Player("dario"), new Player("luca")));
+		message = Codec.decodeMessage(Codec.encodeMessage(new Message(MessageType.MOVE, "mario", move, 77, relay)));
+		assertEquals(message.getId(), 77);
+		assertEquals(message.getRelay().size(), 2);
+		assertEquals(message.getRelay().get(1).getNickname(), "luca");
+
+		byte[] request = Codec.encodeMessage(new Message(MessageType.ROOM_REQUEST, "mario",
+				new RoomRequest(RoomRequest.Kind.MOVE, "challenge1", "mario", 8, 3, 6)));
+		assertEquals(Codec.messageType(request), MessageType.ROOM_REQUEST);
+		RoomRequest decodedRequest = (RoomRequest) Codec.decodeMessage(request).getPayload();
+		assertEquals(decodedRequest.getKind(), RoomRequest.Kind.MOVE);
+		assertEquals(decodedRequest.getX(), 8);
+		assertEquals(decodedRequest.getY(), 3);
+		assertEquals(decodedRequest.getValue(), 6);
+		assertNull(Codec.messageType(Codec.encodeMove(move)));
+
+		assertThrows(IOException.class, () -> Codec.decodeMessage(Codec.encodeMove(move)));
+	}
+
+	@Test
+	void testCase_LobbySummary() throws Exception {
+
+		Challenge challenge = new Challenge("challenge1", "lorenzo", -1);
+		challenge.getPlayers_scores().put("mario", 0);
+		byte[] summary = Codec.encodeSummary(new ChallengeSummary(challenge));
+
+		assertTrue(summary.length * 3 < Codec.encodeChallenge(challenge).length);
+
+		ArrayList<ChallengeSummary> lobby = new ArrayList<>(Arrays.asList(Codec.decodeSummary(summary)));
+		Message message = Codec.decodeMessage(Codec.encodeMessage(new Message(MessageType.LOBBY, "lorenzo", lobby)));
+		ChallengeSummary decoded = (ChallengeSummary) ((List<?>) message.getPayload()).get(0);
+
+		assertEquals(decoded.getCodice_partita(), "challenge1");
+		assertEquals(decoded.getOwner(), "lorenzo");
+		assertEquals(decoded.getPlayers(), 2);
+
+		LobbyEvent event = new LobbyEvent(LobbyEvent.Kind.REMOVED, 42, "challenge1", null);
+		message = Codec.decodeMessage(Codec.encodeMessage(new Message(MessageType.LOBBY_EVENT, "lorenzo", event)));
+		LobbyEvent decodedEvent = (LobbyEvent) message.getPayload();
+
+		assertEquals(decodedEvent.getKind(), LobbyEvent.Kind.REMOVED);
+		assertEquals(decodedEvent.getVersion(), 42);
+		assertEquals(decodedEvent.getCodice_partita(), "challenge1");
+		assertNull(decodedEvent.getSummary());
+	}
+
+	@Test
+	void testCase_RecordLayouts() throws Exception {
+
+		// A newer encoder appended a field to the summary record
+		byte[] summary = Codec.encodeSummary(new ChallengeSummary("challenge1", "lorenzo", 2, true, 7));
+		byte[] newer = resize(summary, 1);
+		newer[newer.length - 1] = 0x7F;
+		ChallengeSummary decoded = Codec.decodeSummary(newer);
+
+		assertEquals(decoded.getCodice_partita(), "challenge1");
+		assertEquals(decoded.getPlayers(), 2);
+		assertTrue(decoded.isStarted());
+		assertEquals(decoded.getVersion(), 7);
+
+		// An older encoder did not write the room version yet
+		Challenge challenge = new Challenge("challenge1", "lorenzo", -1);
+		challenge.setVersion(5);
+		Challenge older = Codec.decodeChallenge(resize(Codec.encodeChallenge(challenge), -1));
+
+		assertEquals(older.getCodice_partita(), "challenge1");
+		assertEquals(older.getVersion(), 0);
+
+		// A difficulty this peer does not know
+		byte[] puzzle = Codec.encodePuzzle(SudokuGenerator.generate(Difficulty.EASY));
+		puzzle[6] = 99;
+		assertThrows(IOException.class, () -> Codec.decodePuzzle(puzzle));
+	}
+
+	/**
+	 * Grows or shrinks the top-level record of a payload by delta bytes
+	 */
+	private static byte[] resize(byte[] payload, int delta) {
+		byte[] resized = Arrays.copyOf(payload, payload.length + delta);
+		ByteBuffer buffer = ByteBuffer.wrap(resized);
+		buffer.putInt(2, buffer.getInt(2) + delta);
+		return resized;
+	}
+
+	@Test
+	void testCase_CorruptLengths() {
+
+		// The address of the player is given a negative length
+		byte[] player = Codec.encodePlayer(new Player("lorenzo"));
+		byte[] negativeLength = resize(player, 4);
+		System.arraycopy(varInt(-1), 0, negativeLength, player.length - 1, 5);
+		assertThrows(IOException.class, () -> Codec.decodePlayer(negativeLength));
+
+		// Counts that are negative or far past the end of the data
+		byte[] players = Codec.encodePlayers(new ArrayList<>());
+		byte[] negativeCount = Arrays.copyOf(players, players.length + 4);
+		System.arraycopy(varInt(-1), 0, negativeCount, players.length - 1, 5);
+		assertThrows(IOException.class, () -> Codec.decodePlayers(negativeCount));
+
+		byte[] hugeCount = Arrays.copyOf(players, players.length + 4);
+		System.arraycopy(varInt(Integer.MAX_VALUE), 0, hugeCount, players.length - 1, 5);
+		assertThrows(IOException.class, () -> Codec.decodePlayers(hugeCount));
+	}
+
+	/**
+	 * Five-byte varint of any int, negative ones included
+	 */
+	private static byte[] varInt(int value) {
+		byte[] bytes = new byte[5];
+		for (int i = 0; i < 4; i++) {
+			bytes[i] = (byte) ((value >>> (7 * i)) & 0x7F | 0x80);
+		}
+		bytes[4] = (byte) (value >>> 28);
+		return bytes;
+	}
+
+	@Test
+	void testCase_WrongPayloadType() {
+
+		byte[] players = Codec.encodePlayers(new ArrayList<>());
+		assertThrows(IOException.class, () -> Codec.decodeChallenge(players));
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.beans.Board;
+import com.github.emusto3.beans.Difficulty;
+import com.github.emusto3.beans.Puzzle;
+import com.github.emusto3.generator.PuzzleBank;
+import com.github.emusto3.generator.PuzzleBankBuilder;
+import com.github.emusto3.generator.PuzzlePool;
+import com.github.emusto3.generator.SudokuGenerator;
+import com.github.emusto3.generator.SudokuSolver;
+
+
+public class GeneratorTests {
+
+	@Test
+	void testCase_GeneratedPuzzleHasUniqueSolution() {
+
+		for (Difficulty difficulty : Difficulty.values()) {
+			Puzzle puzzle = SudokuGenerator.generate(difficulty);
+			Board givens = puzzle.getGivens();
+			Board solution = puzzle.getSolution();
+
+			assertTrue(solution.isComplete());
+			assertEquals(SudokuSolver.countSolutions(givens, 2), 1);
+			assertTrue(Board.CELLS - givens.getEmptyCount() >= difficulty.getClues());
+
+			for (int i = 0; i < Board.CELLS; i++) {
+				assertTrue(givens.get(i) == 0 || givens.get(i) == solution.get(i));
+			}
+		}
+	}
+
+	@Test
+	void testCase_SameSeedSamePuzzle() {
+
+		Puzzle first = SudokuGenerator.generate(Difficulty.EASY, 42L);
+		Puzzle second = SudokuGenerator.generate(Difficulty.EASY, 42L);
+
+		assertEquals(first.getGivens(), second.getGivens());
+	}
+
+	@Test
+	void testCase_BulkGeneration() {
+
+		List<Puzzle> puzzles = SudokuGenerator.generateAll(50, Difficulty.MEDIUM);
+		assertEquals(puzzles.size(), 50);
+	}
+
+	@Test
+	void testCase_PoolRefillsInBackground() throws Exception {
+
+		PuzzlePool pool = new PuzzlePool(SudokuGenerator::generate, 4, 2);
+
+		assertNotNull(pool.take(Difficulty.EASY));
+		assertEquals(pool.getMisses(), 1);
+
+		pool.start();
+		for (int i = 0; i < 50 && pool.size(Difficulty.EASY) < 4; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(pool.size(Difficulty.EASY), 4);
+
+		assertNotNull(pool.take(Difficulty.EASY));
+		assertEquals(pool.getHits(), 1);
+		pool.shutdown();
+	}
+
+	@Test
+	void testCase_PoolSurvivesSourceFailures() throws Exception {
+
+		// The source fails twice for hard puzzles, then recovers
+		AtomicInteger failing = new AtomicInteger(2);
+		PuzzlePool pool = new PuzzlePool(difficulty -> {
+			if (difficulty == Difficulty.HARD && failing.getAndDecrement() > 0) {
+				throw new IllegalStateException("Source unavailable");
+			}
+			return SudokuGenerator.generate(difficulty);
+		}, 4, 2);
+
+		pool.start();
+		for (int i = 0; i < 100 && (pool.size(Difficulty.EASY) < 4 || pool.size(Difficulty.HARD) < 4); i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(pool.size(Difficulty.EASY), 4);
+		assertEquals(pool.size(Difficulty.HARD), 4);
+		assertEquals(pool.getFailures(), 2);
+		pool.shutdown();
+	}
+
+	@Test
+	void testCase_PuzzleBankRoundTrip() throws Exception {
+
+		Path file = Files.createTempFile("bank", ".sdk");
+		try (PuzzleBankBuilder builder = new PuzzleBankBuilder()) {
+			builder.generate(Difficulty.EASY, 3);
+			builder.generate(Difficulty.HARD, 2);
+			builder.writeTo(file);
+		}
+
+		try (PuzzleBank bank = PuzzleBank.open(file)) {
+			assertEquals(bank.count(Difficulty.EASY), 3);
+			assertEquals(bank.count(Difficulty.MEDIUM), 0);
+			assertEquals(bank.count(Difficulty.HARD), 2);
+
+			Puzzle puzzle = bank.get(Difficulty.HARD, 1);
+			assertEquals(SudokuSolver.countSolutions(puzzle.getGivens(), 2), 1);
+			assertEquals(bank.solutionCell(Difficulty.HARD, 1, 40), puzzle.getSolution().get(40));
+			assertEquals(bank.bySeed(Difficulty.EASY, 7).getGivens(), bank.get(Difficulty.EASY, 1).getGivens());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.game.HedgedReader;
+
+
+public class HedgedReaderTests {
+
+	@Test
+	void testCase_HedgeTrigger() throws Exception {
+
+		HedgedReader reader = new HedgedReader(true, 95);
+
+		// The first read never answers, the hedge is sent after the delay and wins
+		CompletableFuture<String> slow = reader.hedge(CompletableFuture::new,
+				() -> CompletableFuture.completedFuture("hedge"), answer -> true);
+		assertEquals(slow.get(1, TimeUnit.SECONDS), "hedge");
+		assertEquals(reader.getHedges(), 1);
+
+		// A first read answering within the delay sends no hedge
+		CompletableFuture<String> fast = reader.hedge(() -> CompletableFuture.completedFuture("primary"),
+				() -> CompletableFuture.completedFuture("hedge"), answer -> true);
+		assertEquals(fast.get(1, TimeUnit.SECONDS), "primary");
+		Thread.sleep(2 * reader.getDelayMillis());
+		assertEquals(reader.getHedges(), 1);
+		assertEquals(reader.getHedgeWins(), 1);
+
+		// Off: the first read is the answer however long it takes
+		HedgedReader off = new HedgedReader(false, 95);
+		CompletableFuture<String> unhedged = off.hedge(CompletableFuture::new,
+				() -> CompletableFuture.completedFuture("hedge"), answer -> true);
+		Thread.sleep(2 * off.getDelayMillis());
+		assertFalse(unhedged.isDone());
+		assertEquals(off.getHedges(), 0);
+	}
+
+	@Test
+	void testCase_LateFirstRead() throws Exception {
+
+		HedgedReader reader = new HedgedReader(true, 95);
+		CompletableFuture<String> first = new CompletableFuture<>();
+
+		CompletableFuture<String> read = reader.hedge(() -> first,
+				() -> CompletableFuture.completedFuture("hedge"), answer -> !answer.equals("empty"));
+		Thread.sleep(2 * reader.getDelayMillis());
+
+		// The hedge already answered, a late failed first read changes nothing
+		first.complete("empty");
+		assertEquals(read.get(1, TimeUnit.SECONDS), "hedge");
+	}
+
+	@Test
+	void testCase_DelayFollowsLatency() throws Exception {
+
+		HedgedReader reader = new HedgedReader(false, 95);
+		long initial = reader.getDelayMillis();
+
+		for (int i = 0; i < 32; i++) {
+			reader.hedge(() -> CompletableFuture.completedFuture("primary"), CompletableFuture::new, answer -> true);
+		}
+
+		// Reads answering at once bring the delay down to its floor
+		assertEquals(initial, 50);
+		assertEquals(reader.getDelayMillis(), 5);
+		assertEquals(reader.getReads(), 32);
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.game.LocalCache;
+
+
+public class LocalCacheTests {
+
+	@Test
+	void testCase_TtlExpiry() throws Exception {
+
+		LocalCache<String, Integer> cache = new LocalCache<>(100);
+		cache.put("challenge1", 1);
+
+		assertEquals(cache.get("challenge1"), 1);
+		assertNull(cache.get("challenge2"));
+		assertEquals(cache.getHits(), 1);
+		assertEquals(cache.getMisses(), 1);
+
+		Thread.sleep(150);
+
+		// Expired on the next read, not served stale
+		assertNull(cache.get("challenge1"));
+		assertEquals(cache.size(), 0);
+		assertEquals(cache.getMisses(), 2);
+		assertTrue(cache.getMaxStalenessMillis() < 100);
+	}
+
+	@Test
+	void testCase_SweepAndInvalidate() throws Exception {
+
+		LocalCache<String, Integer> cache = new LocalCache<>(100);
+		cache.put("challenge1", 1);
+		cache.put("challenge2", 2);
+		assertEquals(cache.size(), 2);
+
+		Thread.sleep(150);
+
+		// Entries nobody asks for again go with the next put after a TTL
+		cache.put("challenge3", 3);
+		assertEquals(cache.size(), 1);
+
+		cache.invalidate("challenge3");
+		assertNull(cache.get("challenge3"));
+		assertEquals(cache.getInvalidations(), 1);
+
+		LocalCache<String, Integer> off = new LocalCache<>(0);
+		off.put("challenge1", 1);
+		assertNull(off.get("challenge1"));
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.beans.Player;
+import com.github.emusto3.game.PeerIndex;
+
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.PeerAddress;
+
+
+public class PeerIndexTests {
+
+	@Test
+	void testCase_EvictAndResolve() {
+
+		PeerIndex index = new PeerIndex();
+		PeerAddress old = new PeerAddress(new Number160(1));
+		PeerAddress fresh = new PeerAddress(new Number160(2));
+
+		index.put("mario", old);
+		assertEquals(index.get("mario"), old);
+
+		// A send to the old address failed after a newer one was learned: kept
+		index.put("mario", fresh);
+		index.evict("mario", old);
+		assertEquals(index.get("mario"), fresh);
+		assertEquals(index.getEvictions(), 0);
+
+		index.evict("mario", fresh);
+		assertNull(index.get("mario"));
+		assertEquals(index.getEvictions(), 1);
+		assertEquals(index.getMisses(), 1);
+
+		// Read again from the registry on the next miss
+		index.put(new Player("mario", old));
+		assertEquals(index.get("mario"), old);
+		assertEquals(index.getLookups(), 4);
+	}
+
+	@Test
+	void testCase_ResetFromRegistry() {
+
+		PeerIndex index = new PeerIndex();
+		index.put("mario", new PeerAddress(new Number160(1)));
+		index.put("luca", new PeerAddress(new Number160(2)));
+
+		PeerAddress dario = new PeerAddress(new Number160(3));
+		index.reset(Arrays.asList(new Player("luca", new PeerAddress(new Number160(2))), new Player("dario", dario)));
+
+		assertFalse(index.contains("mario"));
+		assertTrue(index.contains("luca"));
+		assertEquals(index.get("dario"), dario);
+		assertEquals(index.size(), 2);
+
+		// Players not registered yet have no address to index
+		index.put(new Player("anna"));
+		assertFalse(index.contains("anna"));
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.beans.Challenge;
+import com.github.emusto3.beans.MoveApplied;
+import com.github.emusto3.beans.Sudoku;
+import com.github.emusto3.game.RoomHost;
+
+
+public class RoomHostTests {
+
+	@Test
+	void testCase_FirstClaimWins() throws Exception {
+
+		Challenge challenge = new Challenge("challenge1", "lorenzo", -1);
+		challenge.getPlayers_scores().put("mario", 0);
+		challenge.setStarted(true);
+		RoomHost host = new RoomHost(challenge, null);
+
+		Sudoku sudoku = challenge.getSudoku_board();
+		int[] cell = emptyCell(sudoku);
+		int value = sudoku.getSoluzione(cell[0], cell[1]);
+
+		// Both players place the right value in the same cell, lorenzo's claim lands first
+		assertTrue(host.claim(cell[0], cell[1], value));
+		assertFalse(host.claim(cell[0], cell[1], value));
+
+		MoveApplied move = host.move("lorenzo", cell[0], cell[1], value);
+		assertEquals(move.getScoreDelta(), 1);
+		assertEquals(host.snapshot().getPlayers_scores().get("lorenzo"), 1);
+		assertEquals(host.snapshot().getPlayers_scores().get("mario"), 0);
+
+		// The cell stays taken once filled, a wrong value is never turned down by the claim
+		assertFalse(host.claim(cell[0], cell[1], value));
+		assertTrue(host.claim(cell[0], cell[1], value % 9 + 1));
+	}
+
+	@Test
+	void testCase_ChangesBumpVersion() throws Exception {
+
+		RoomHost host = new RoomHost(new Challenge("challenge1", "lorenzo", -1), null);
+		long version = host.snapshot().getVersion();
+
+		assertTrue(host.join("mario"));
+		assertFalse(host.join("mario"));
+		assertEquals(host.snapshot().getVersion(), version + 1);
+
+		assertTrue(host.start());
+		assertFalse(host.start());
+		assertTrue(host.snapshot().isStarted());
+		assertEquals(host.snapshot().getVersion(), version + 2);
+
+		Sudoku sudoku = host.snapshot().getSudoku_board();
+		int[] cell = emptyCell(sudoku);
+		int value = sudoku.getSoluzione(cell[0], cell[1]);
+
+		MoveApplied wrong = host.move("mario", cell[0], cell[1], value % 9 + 1);
+		assertEquals(wrong.getScoreDelta(), -1);
+		assertEquals(wrong.getSequence(), version + 3);
+
+		assertTrue(host.claim(cell[0], cell[1], value));
+		MoveApplied right = host.move("lorenzo", cell[0], cell[1], value);
+		assertEquals(right.getScoreDelta(), 1);
+		assertEquals(right.getSequence(), version + 4);
+
+		// Players outside the room change nothing
+		MoveApplied outsider = host.move("dario", cell[0], cell[1], value);
+		assertEquals(outsider.getScoreDelta(), 0);
+
+		Challenge room = host.snapshot();
+		assertEquals(room.getVersion(), version + 4);
+		assertEquals(room.getSudoku_board().getSfida().get(cell[0], cell[1]), value);
+		assertEquals(room.getPlayers_scores().get("mario"), -1);
+		assertEquals(room.getPlayers_scores().get("lorenzo"), 1);
+	}
+
+	@Test
+	void testCase_QuitHandsOverOwnership() throws Exception {
+
+		RoomHost host = new RoomHost(new Challenge("challenge1", "lorenzo", -1), null);
+		host.join("mario");
+		host.join("luca");
+		long version = host.snapshot().getVersion();
+
+		assertTrue(host.quit("mario"));
+		assertFalse(host.quit("mario"));
+		assertFalse(host.isClosed());
+		assertEquals(host.snapshot().getVersion(), version + 1);
+
+		// The owner leaving passes the room on and closes this host
+		assertTrue(host.quit("lorenzo"));
+		assertTrue(host.isClosed());
+		assertEquals(host.snapshot().getOwner(), "luca");
+		assertEquals(host.snapshot().getVersion(), version + 2);
+		assertFalse(host.join("mario"));
+
+		RoomHost alone = new RoomHost(new Challenge("challenge2", "lorenzo", -1), null);
+		assertTrue(alone.quit("lorenzo"));
+		assertTrue(alone.isClosed());
+		assertTrue(alone.snapshot().getPlayers_scores().isEmpty());
+	}
+
+	/**
+	 * First empty cell of the board, as {row, column}
+	 */
+	private static int[] emptyCell(Sudoku sudoku) {
+		for (int x = 0; x < 9; x++) {
+			for (int y = 0; y < 9; y++) {
+				if (sudoku.getSfida().get(x, y) == 0) {
+					return new int[] { x, y };
+				}
+			}
+		}
+		throw new IllegalStateException("No empty cell");
+	}
+
+}
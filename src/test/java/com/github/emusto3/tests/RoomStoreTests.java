@@ -0,0 +1,108 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.beans.Challenge;
+import com.github.emusto3.codec.Codec;
+import com.github.emusto3.game.HedgedReader;
+import com.github.emusto3.game.RoomStore;
+
+import net.tomp2p.dht.PeerBuilderDHT;
+import net.tomp2p.dht.PeerDHT;
+import net.tomp2p.p2p.PeerBuilder;
+import net.tomp2p.peers.Number160;
+
+
+public class RoomStoreTests {
+
+	private PeerDHT dht;
+	private RoomStore rooms;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		dht = new PeerBuilderDHT(new PeerBuilder(Number160.createHash("roomstore")).ports(4200).start()).start();
+		rooms = new RoomStore(dht, new HedgedReader(false, HedgedReader.DEFAULT_PERCENTILE));
+	}
+
+	@AfterEach
+	void tearDown() {
+		dht.shutdown().awaitUninterruptibly();
+	}
+
+	@Test
+	void testCase_SameBaseOneWriterWins() throws Exception {
+
+		Challenge room = new Challenge("challenge1", "lorenzo", -1);
+		assertTrue(rooms.create(room));
+		long base = room.getVersion();
+
+		// Two writers read the same version, only the first stores the next one
+		Challenge first = copy(room);
+		first.getPlayers_scores().put("mario", 0);
+		first.setVersion(base + 1);
+		Challenge second = copy(room);
+		second.getPlayers_scores().put("luca", 0);
+		second.setVersion(base + 1);
+
+		assertTrue(rooms.checkpoint(first, base));
+		assertFalse(rooms.checkpoint(second, base));
+
+		Challenge next = copy(first);
+		next.getPlayers_scores().put("dario", 0);
+		next.setVersion(base + 2);
+		assertTrue(rooms.checkpoint(next, base + 1));
+
+		// A late writer still based on the first version finds its slot taken
+		Challenge late = copy(room);
+		late.getPlayers_scores().put("anna", 0);
+		late.setVersion(base + 1);
+		assertFalse(rooms.checkpoint(late, base));
+
+		Challenge stored = rooms.read("challenge1");
+		assertEquals(stored.getVersion(), base + 2);
+		assertTrue(stored.getPlayers_scores().containsKey("mario"));
+		assertTrue(stored.getPlayers_scores().containsKey("dario"));
+		assertFalse(stored.getPlayers_scores().containsKey("luca"));
+		assertFalse(stored.getPlayers_scores().containsKey("anna"));
+	}
+
+	@Test
+	void testCase_CheckpointsSkippingVersions() throws Exception {
+
+		Challenge room = new Challenge("challenge1", "lorenzo", -1);
+		assertTrue(rooms.create(room));
+		long base = room.getVersion();
+
+		// The host checkpoints a few versions ahead of the last one stored
+		Challenge hosted = copy(room);
+		hosted.getPlayers_scores().put("mario", 0);
+		hosted.setVersion(base + 5);
+		assertTrue(rooms.checkpoint(hosted, base));
+
+		// A peer taking over from that checkpoint and the host's next one race for the same slot
+		Challenge takenOver = copy(hosted);
+		takenOver.setOwner("mario");
+		takenOver.setVersion(base + 6);
+		assertTrue(rooms.checkpoint(takenOver, base + 5));
+
+		Challenge later = copy(hosted);
+		later.getPlayers_scores().put("luca", 0);
+		later.setVersion(base + 9);
+		assertFalse(rooms.checkpoint(later, base + 5));
+
+		Challenge stored = rooms.read("challenge1");
+		assertEquals(stored.getVersion(), base + 6);
+		assertEquals(stored.getOwner(), "mario");
+	}
+
+	private static Challenge copy(Challenge challenge) throws Exception {
+		return Codec.decodeChallenge(Codec.encodeChallenge(challenge));
+	}
+
+}
@@ -6,8 +6,6 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.util.ArrayList;
-
 import org.beryx.textio.TextTerminal;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -16,6 +14,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.github.lorenzopetra96.beans.Challenge;
+import com.github.lorenzopetra96.beans.Message;
 import com.github.lorenzopetra96.exceptions.MasterPeerNotFoundException;
 import com.github.lorenzopetra96.game.ClientImpl;
 import com.github.lorenzopetra96.game.SudokuGame;
@@ -41,13 +40,16 @@ public class SudokuTests {
 		public Object parseMessage(Object obj) throws Exception {
 		if(peer!=null)
 			try{
-				System.out.println(obj.getClass());
-
-				if(obj.getClass().equals(peer.getChallenges().getClass())) {
-					peer.setChallenges((ArrayList<Challenge>) obj);
-				}
-				else if(obj.getClass().equals(peer.getChallenge().getClass())) {
-					peer.setChallenge((Challenge) obj);
+				// Lobby events and moves are already applied by the client
+				Message message = (Message) obj;
+				System.out.println(message.getType());
+
+				switch (message.getType()) {
+				case CHALLENGE:
+					peer.setChallenge((Challenge) message.getPayload());
+					break;
+				default:
+					break;
 				}
 				return "success";
 			}catch(Exception e) {
@@ -0,0 +1,59 @@
+package com.github.emusto3.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.emusto3.beans.Player;
+import com.github.emusto3.game.TreeDisseminator;
+
+
+public class TreeDisseminatorTests {
+
+	@Test
+	void testCase_GroupPartitioning() {
+
+		List<Player> targets = players(10);
+		List<List<Player>> groups = TreeDisseminator.groups(targets, 4);
+
+		assertEquals(groups.size(), 4);
+		assertEquals(groups.get(0).size(), 3);
+		assertEquals(groups.get(3).size(), 1);
+		assertEquals(groups.get(1).get(0).getNickname(), "player3");
+
+		// Every target is in exactly one group
+		Set<String> reached = new HashSet<>();
+		for (List<Player> group : groups) {
+			for (Player player : group) {
+				assertTrue(reached.add(player.getNickname()));
+			}
+		}
+		assertEquals(reached.size(), 10);
+	}
+
+	@Test
+	void testCase_GroupEdges() {
+
+		// Fewer targets than the fan-out: each one leads a group of its own
+		assertEquals(TreeDisseminator.groups(players(3), 4).size(), 3);
+		// A fan-out of one is a chain through all targets
+		assertEquals(TreeDisseminator.groups(players(5), 1).size(), 1);
+		assertEquals(TreeDisseminator.groups(players(0), 4).size(), 0);
+		assertEquals(TreeDisseminator.groups(players(16), 4).get(3).size(), 4);
+	}
+
+	private static List<Player> players(int count) {
+		List<Player> players = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			players.add(new Player("player" + i));
+		}
+		return players;
+	}
+
+}